@@ -0,0 +1,137 @@
+package io.github.clechasseur.deckr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// Load test of the HTTP API on H2, with many concurrent clients sharing a small connection pool, serving requests on
+// Tomcat's thread pool; see VirtualThreadApiLoadBenchmark for the same load on virtual threads. Sample time mode
+// reports percentiles of the request latency.
+// Run with ./gradlew jmh -PjmhIncludes=ApiLoad
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(32)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadPoolApiLoadBenchmark {
+    private static final int NUM_PLAYERS = 8;
+
+    @Param({ "4" })
+    private int poolSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI shoeCardsUri;
+    private URI playersUri;
+    private URI handUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = new SpringApplicationBuilder(DeckrApplication.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=64",
+                        "deckr.threads.virtual=" + virtualThreads(),
+                        "spring.jpa.show-sql=false",
+                        "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "logging.level.root=WARN")
+                .run();
+        client = HttpClient.newHttpClient();
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+
+        long gameId = post(baseUrl + "/game", "{\"name\":\"Load test\"}");
+        post(baseUrl + "/game/" + gameId + "/shoe", null);
+        execute("PUT", baseUrl + "/game/" + gameId + "/shoe?numDecks=8");
+        execute("PATCH", baseUrl + "/game/" + gameId + "/shoe?strategy=InPlace");
+        long playerId = 0;
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            playerId = post(baseUrl + "/player", "{\"game\":{\"id\":" + gameId + "},\"name\":\"Player " + i + "\"}");
+        }
+        execute("PUT", baseUrl + "/game/" + gameId + "/deal?cardsEach=5");
+
+        shoeCardsUri = URI.create(baseUrl + "/game/" + gameId + "/shoe/cards");
+        playersUri = URI.create(baseUrl + "/game/" + gameId + "/players");
+        handUri = URI.create(baseUrl + "/player/" + playerId + "/hand");
+    }
+
+    protected boolean virtualThreads() {
+        return false;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Large response: several hundred cards serialized after the game is read
+    @Benchmark
+    public int getCardsLeftInShoe() throws IOException, InterruptedException {
+        return get(shoeCardsUri);
+    }
+
+    @Benchmark
+    public int getPlayersAndValues() throws IOException, InterruptedException {
+        return get(playersUri);
+    }
+
+    @Benchmark
+    public int getHand() throws IOException, InterruptedException {
+        return get(handUri);
+    }
+
+    private int get(URI uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + uri + " returned " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    private long post(String url, String body) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                        .header("Content-Type", "application/json")
+                        .POST(body != null ? HttpRequest.BodyPublishers.ofString(body)
+                                : HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("POST " + url + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("id").asLong();
+    }
+
+    private void execute(String method, String url) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                        .method(method, HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 204) {
+            throw new IllegalStateException(method + " " + url + " returned " + response.statusCode());
+        }
+    }
+}
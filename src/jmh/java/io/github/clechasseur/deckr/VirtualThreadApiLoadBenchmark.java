@@ -0,0 +1,14 @@
+package io.github.clechasseur.deckr;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// Same load as ThreadPoolApiLoadBenchmark, with each request served on its own virtual thread. Requires Java 21 or later;
+// the jmh task leaves it out when Gradle runs on an older runtime.
+@State(Scope.Benchmark)
+public class VirtualThreadApiLoadBenchmark extends ThreadPoolApiLoadBenchmark {
+    @Override
+    protected boolean virtualThreads() {
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.clechasseur.deckr.model;
+
+import io.github.clechasseur.deckr.util.CardUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Parses the cards of a shoe one at a time, as when reading them from requests.
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CardAndSuitBenchmark {
+    @Param({ "1", "8", "100" })
+    private int numDecks;
+
+    private String[] cards;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cards = new String[numDecks * CardAndSuit.DISTINCT_CARDS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = CardUtils.toString(new byte[] { (byte) random.nextInt(CardAndSuit.DISTINCT_CARDS) });
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String card : cards) {
+            blackhole.consume(CardAndSuit.parse(card));
+        }
+    }
+}
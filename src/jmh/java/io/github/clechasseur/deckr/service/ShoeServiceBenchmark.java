@@ -0,0 +1,32 @@
+package io.github.clechasseur.deckr.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Building the cards added to a shoe: the standard deck itself, which goes through streams of CardAndSuit, and
+// copies of it for a number of decks.
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ShoeServiceBenchmark {
+    @State(Scope.Thread)
+    public static class Decks {
+        @Param({ "1", "8", "100" })
+        private int numDecks;
+    }
+
+    @Benchmark
+    public byte[] getStandardDeck() {
+        return ShoeService.getStandardDeck();
+    }
+
+    @Benchmark
+    public byte[] getStandardDecks(Decks decks) {
+        return ShoeService.getStandardDecks(decks.numDecks);
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+
+// Run with ./gradlew jmh; the gc profiler reports allocation per shuffle for each strategy.
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ShuffleEngineBenchmark {
+    private static final Map<ShuffleStrategy, ShuffleEngine> ENGINES = Map.of(
+            ShuffleStrategy.InPlace, new InPlaceShuffleEngine(),
+            ShuffleStrategy.Splittable, new SplittableRandomShuffleEngine(),
+            ShuffleStrategy.Secure, new SecureRandomShuffleEngine(),
+            ShuffleStrategy.Parallel, new ParallelShuffleEngine()
+    );
+
+    @Param({ "InPlace", "Splittable", "Secure", "Parallel" })
+    private ShuffleStrategy strategy;
+
+    @Param({ "1", "8", "100", "1000" })
+    private int numDecks;
+
+    private ShuffleEngine engine;
+    private byte[] cards;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = ENGINES.get(strategy);
+        cards = new byte[numDecks * 52];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (byte) (i % 52);
+        }
+    }
+
+    @Benchmark
+    public byte[] shuffle() {
+        engine.shuffle(cards);
+        return cards;
+    }
+}
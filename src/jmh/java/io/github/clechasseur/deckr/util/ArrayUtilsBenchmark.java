@@ -0,0 +1,47 @@
+package io.github.clechasseur.deckr.util;
+
+import io.github.clechasseur.deckr.model.CardAndSuit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Shuffles cards encoded as bytes, as stored in shoes, and as CardAndSuit objects.
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArrayUtilsBenchmark {
+    @Param({ "1", "8", "100" })
+    private int numDecks;
+
+    private byte[] cards;
+    private CardAndSuit[] cardObjects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cards = new byte[numDecks * CardAndSuit.DISTINCT_CARDS];
+        cardObjects = new CardAndSuit[cards.length];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (byte) (i % CardAndSuit.DISTINCT_CARDS);
+            cardObjects[i] = CardAndSuit.fromIndex(cards[i]);
+        }
+    }
+
+    @Benchmark
+    public byte[] shuffleBytes() {
+        ArrayUtils.shuffleArray(cards);
+        return cards;
+    }
+
+    @Benchmark
+    public CardAndSuit[] shuffleObjects() {
+        ArrayUtils.shuffleArray(cardObjects);
+        return cardObjects;
+    }
+}
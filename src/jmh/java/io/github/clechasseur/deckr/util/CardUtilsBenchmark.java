@@ -0,0 +1,68 @@
+package io.github.clechasseur.deckr.util;
+
+import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.Suit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Card routines used on every read of a shoe or hand, on a shuffled shoe of the given number of decks.
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CardUtilsBenchmark {
+    @Param({ "1", "8", "100" })
+    private int numDecks;
+
+    private byte[] cards;
+    private String cardsString;
+    private int[] cardCounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cards = new byte[numDecks * CardAndSuit.DISTINCT_CARDS];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (byte) (i % CardAndSuit.DISTINCT_CARDS);
+        }
+        ArrayUtils.shuffleArray(cards);
+        cardsString = CardUtils.toString(cards);
+        cardCounts = CardUtils.countCards(cards, 0, cards.length);
+        // Keep the counts uneven, as in a shoe that has been dealt from
+        cardCounts[ThreadLocalRandom.current().nextInt(cardCounts.length)]--;
+    }
+
+    @Benchmark
+    public List<String> cardsAsList() {
+        return CardUtils.cardsAsList(cardsString);
+    }
+
+    @Benchmark
+    public int[] countCards() {
+        return CardUtils.countCards(cards, 0, cards.length);
+    }
+
+    // Same work as ShoeService.getCountOfCardsLeftBySuit, minus loading the shoe
+    @Benchmark
+    public int countBySuit() {
+        int total = 0;
+        for (Suit suit : Suit.values()) {
+            total += CardUtils.countBySuit(cardCounts, suit);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int sumValues() {
+        return CardUtils.sumValues(cards);
+    }
+}
@@ -2,8 +2,10 @@ package io.github.clechasseur.deckr;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DeckrApplication {
     public static void main(String[] args) {
         SpringApplication.run(DeckrApplication.class, args);
@@ -0,0 +1,80 @@
+package io.github.clechasseur.deckr.cache;
+
+import java.util.Objects;
+
+public class CacheStats {
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CacheStats() {
+    }
+
+    public CacheStats(int size, long hits, long misses, long evictions) {
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests != 0 ? (double) hits / requests : 0.0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheStats that = (CacheStats) o;
+        return size == that.size && hits == that.hits && misses == that.misses && evictions == that.evictions;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, hits, misses, evictions);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "size=" + size +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.clechasseur.deckr.cache;
+
+import io.github.clechasseur.deckr.model.Game;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Bounded cache of games read from the database. Entries are evicted when they're older than the TTL or when
+// the cache is full (least recently used first). Cached games are shared, so they must not be modified.
+@Component
+public class GameCache {
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Not a monitor, so that virtual threads waiting for it don't pin their carrier thread
+    private final Lock lock = new ReentrantLock();
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Games being loaded. Their generation is incremented when they are invalidated, so that a game loaded
+    // concurrently with a change to it is not cached; changes to other games don't matter.
+    private final Map<Long, Loads> loads = new HashMap<>();
+    // Number of uncommitted transactions that changed each game. Until they complete, a game that is read isn't
+    // cached: it could be the game from before the commit, while the revision used for ETags is already the new one.
+    private final Map<Long, Integer> changes = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public GameCache(@Value("${deckr.cache.game.max-size:1000}") int maxSize,
+                     @Value("${deckr.cache.game.ttl:30s}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public Game get(Long gameId, Function<Long, Game> loader) {
+        Loads gameLoads;
+        long loadGeneration;
+        lock.lock();
+        try {
+            Entry entry = entries.get(gameId);
+            if (entry != null && System.nanoTime() - entry.loadedAt <= ttlNanos) {
+                hits++;
+                return entry.game;
+            } else if (entry != null) {
+                entries.remove(gameId);
+                evictions++;
+            }
+            misses++;
+            gameLoads = loads.computeIfAbsent(gameId, id -> new Loads());
+            gameLoads.count++;
+            loadGeneration = gameLoads.generation;
+        } finally {
+            lock.unlock();
+        }
+        Game game = null;
+        try {
+            game = loader.apply(gameId);
+        } finally {
+            lock.lock();
+            try {
+                if (game != null && maxSize > 0 && gameLoads.generation == loadGeneration
+                        && !changes.containsKey(gameId)) {
+                    entries.put(gameId, new Entry(game, System.nanoTime()));
+                    Iterator<Entry> it = entries.values().iterator();
+                    while (entries.size() > maxSize) {
+                        it.next();
+                        it.remove();
+                        evictions++;
+                    }
+                }
+                if (--gameLoads.count == 0) {
+                    loads.remove(gameId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return game;
+    }
+
+    // Removes the game from the cache. If called within a transaction, the game isn't cached again until the
+    // transaction completes.
+    public void invalidate(Long gameId) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        lock.lock();
+        try {
+            if (inTransaction) {
+                changes.merge(gameId, 1, Integer::sum);
+            }
+            remove(gameId);
+        } finally {
+            lock.unlock();
+        }
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.lock();
+                    try {
+                        changes.computeIfPresent(gameId, (id, count) -> count > 1 ? count - 1 : null);
+                        remove(gameId);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+    }
+
+    public CacheStats getStats() {
+        lock.lock();
+        try {
+            return new CacheStats(entries.size(), hits, misses, evictions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called while holding the lock
+    private void remove(Long gameId) {
+        entries.remove(gameId);
+        Loads gameLoads = loads.get(gameId);
+        if (gameLoads != null) {
+            gameLoads.generation++;
+        }
+    }
+
+    private static class Loads {
+        int count;
+        long generation;
+    }
+
+    private static class Entry {
+        final Game game;
+        final long loadedAt;
+
+        Entry(Game game, long loadedAt) {
+            this.game = game;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
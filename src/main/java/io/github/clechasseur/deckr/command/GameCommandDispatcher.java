@@ -0,0 +1,83 @@
+package io.github.clechasseur.deckr.command;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Runs commands that modify a game one at a time, in the order in which they arrive. Commands for different games
+// run in parallel. Each command runs on the caller's thread, so it must start its own transaction (and commit it)
+// while it holds the game's lane, otherwise the next command could read the game before the changes are visible.
+@Component
+public class GameCommandDispatcher {
+    private final boolean enabled;
+
+    // Lanes only exist while they have pending commands
+    private final ConcurrentMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public GameCommandDispatcher(@Value("${deckr.commands.serialize:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The game ID is only looked up if commands are serialized.
+    public <T> T submit(Supplier<Long> gameId, Supplier<T> command) {
+        if (!enabled) {
+            return command.get();
+        }
+        Long id = gameId.get();
+        Lane lane = lanes.compute(id, (key, existing) -> {
+            Lane current = existing != null ? existing : new Lane();
+            current.pending++;
+            return current;
+        });
+        try {
+            lane.lock.lock();
+            try {
+                return command.get();
+            } finally {
+                lane.lock.unlock();
+            }
+        } finally {
+            lanes.computeIfPresent(id, (key, current) -> --current.pending != 0 ? current : null);
+        }
+    }
+
+    public void run(Supplier<Long> gameId, Runnable command) {
+        submit(gameId, () -> {
+            command.run();
+            return null;
+        });
+    }
+
+    public int getQueueDepth(Long gameId) {
+        Lane lane = lanes.get(gameId);
+        return lane != null ? lane.pending : 0;
+    }
+
+    // Games with pending commands, busiest first
+    public List<QueueDepth> getQueueDepths() {
+        return lanes.entrySet().stream()
+                .map(entry -> new QueueDepth(entry.getKey(), entry.getValue().pending))
+                .filter(queueDepth -> queueDepth.getDepth() != 0)
+                .sorted(Comparator.comparingInt(QueueDepth::getDepth).reversed()
+                        .thenComparing(QueueDepth::getGameId))
+                .collect(Collectors.toList());
+    }
+
+    private static final class Lane {
+        // Fair, so that commands run in arrival order
+        final ReentrantLock lock = new ReentrantLock(true);
+        // Commands running or waiting to run; only modified while the lanes map holds the entry's lock
+        volatile int pending;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.clechasseur.deckr.command;
+
+import java.util.Objects;
+
+public class QueueDepth {
+    private Long gameId;
+    private int depth;
+
+    public QueueDepth() {
+    }
+
+    public QueueDepth(Long gameId, int depth) {
+        this.gameId = gameId;
+        this.depth = depth;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueueDepth that = (QueueDepth) o;
+        return depth == that.depth && Objects.equals(gameId, that.gameId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gameId, depth);
+    }
+
+    @Override
+    public String toString() {
+        return "QueueDepth{" +
+                "gameId=" + gameId +
+                ", depth=" + depth +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.clechasseur.deckr.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Spring MVC registers CBOR and Smile converters on its own when the formats are on the classpath, but they render
+// links the way plain Jackson does. These replace them with converters that render resources like the HAL JSON ones.
+@Configuration
+public class BinaryFormatConfiguration implements WebMvcConfigurer {
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+    private final LinkRelationProvider linkRelationProvider;
+    private final MessageResolver messageResolver;
+
+    public BinaryFormatConfiguration(
+            Jackson2ObjectMapperBuilder objectMapperBuilder,
+            LinkRelationProvider linkRelationProvider,
+            MessageResolver messageResolver
+    ) {
+        this.objectMapperBuilder = objectMapperBuilder;
+        this.linkRelationProvider = linkRelationProvider;
+        this.messageResolver = messageResolver;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(halObjectMapper(new CBORFactory())));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(halObjectMapper(new SmileFactory())));
+    }
+
+    private ObjectMapper halObjectMapper(JsonFactory factory) {
+        ObjectMapper objectMapper = objectMapperBuilder.createXmlMapper(false).factory(factory).build();
+        objectMapper.registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                linkRelationProvider, CurieProvider.NONE, messageResolver));
+        return objectMapper;
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.clechasseur.deckr.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves each request on a new virtual thread instead of a thread from Tomcat's pool, so that requests blocked on
+// the database don't tie up a scarce platform thread. Asynchronous responses (streamed card listings) also run on
+// virtual threads. The project targets Java 17, so the executor is looked up when the server starts; the server
+// refuses to start if virtual threads are enabled on an older runtime.
+@Configuration
+@ConditionalOnProperty(name = "deckr.threads.virtual", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+    private final ExecutorService executor;
+
+    public VirtualThreadConfiguration() {
+        this(newVirtualThreadPerTaskExecutor());
+    }
+
+    VirtualThreadConfiguration(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    // Called once the web server has stopped
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on Java "
+                    + Runtime.version().feature(), ex);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Could not create virtual thread executor", ex);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.clechasseur.deckr.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Connection pool defaults for when requests are served on virtual threads, where many more requests can be in
+// progress than there are connections in the pool. Transactions only take a connection once they first need to talk
+// to the database (e.g. not when a read is served from the game cache), and requests that can't get one quickly
+// fail instead of piling up. Set explicitly, these properties still take precedence.
+public class VirtualThreadEnvironmentPostProcessor implements EnvironmentPostProcessor {
+    static final String PROPERTY_SOURCE_NAME = "deckrVirtualThreadDefaults";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("deckr.threads.virtual", Boolean.class, false)) {
+            return;
+        }
+
+        Map<String, Object> defaults = new HashMap<>();
+        // Lets Hibernate skip checking auto-commit, which needs a connection, when a transaction begins
+        defaults.put("spring.datasource.hikari.auto-commit", "false");
+        defaults.put("spring.jpa.properties.hibernate.connection.provider_disables_autocommit", "true");
+        defaults.put("spring.datasource.hikari.connection-timeout", "5000");
+        environment.getPropertySources().addLast(new MapPropertySource(PROPERTY_SOURCE_NAME, defaults));
+    }
+}
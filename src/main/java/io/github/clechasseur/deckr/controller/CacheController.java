@@ -0,0 +1,27 @@
+package io.github.clechasseur.deckr.controller;
+
+import io.github.clechasseur.deckr.cache.CacheStats;
+import io.github.clechasseur.deckr.service.GameService;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+    private final GameService gameService;
+
+    public CacheController(GameService gameService) {
+        this.gameService = gameService;
+    }
+
+    @GetMapping("/game")
+    public EntityModel<CacheStats> getGameCacheStats() {
+        return EntityModel.of(gameService.getCacheStats(),
+                linkTo(methodOn(CacheController.class).getGameCacheStats()).withSelfRel());
+    }
+}
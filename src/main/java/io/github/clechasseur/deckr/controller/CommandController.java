@@ -0,0 +1,44 @@
+package io.github.clechasseur.deckr.controller;
+
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.command.QueueDepth;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequestMapping("/api/commands")
+public class CommandController {
+    private final GameCommandDispatcher commandDispatcher;
+
+    public CommandController(GameCommandDispatcher commandDispatcher) {
+        this.commandDispatcher = commandDispatcher;
+    }
+
+    @GetMapping("/queues")
+    public CollectionModel<EntityModel<QueueDepth>> getQueueDepths() {
+        List<QueueDepth> queueDepths = commandDispatcher.getQueueDepths();
+        return CollectionModel.of(queueDepths.stream().map(this::toModel).collect(Collectors.toList()),
+                linkTo(methodOn(CommandController.class).getQueueDepths()).withSelfRel());
+    }
+
+    @GetMapping("/queues/{gameId}")
+    public EntityModel<QueueDepth> getQueueDepth(@PathVariable Long gameId) {
+        return toModel(new QueueDepth(gameId, commandDispatcher.getQueueDepth(gameId)));
+    }
+
+    private EntityModel<QueueDepth> toModel(QueueDepth queueDepth) {
+        return EntityModel.of(queueDepth,
+                linkTo(methodOn(CommandController.class).getQueueDepth(queueDepth.getGameId())).withSelfRel(),
+                linkTo(methodOn(GameController.class).getGame(queueDepth.getGameId(), null)).withRel("game"));
+    }
+}
@@ -3,9 +3,13 @@ package io.github.clechasseur.deckr.controller;
 import io.github.clechasseur.deckr.exception.GameAlreadyHasShoeException;
 import io.github.clechasseur.deckr.exception.GameNotFoundException;
 import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfCardsException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfDecksException;
 import io.github.clechasseur.deckr.exception.PlayerNotFoundException;
 import io.github.clechasseur.deckr.exception.PlayerWithoutGameException;
 import io.github.clechasseur.deckr.exception.ShoeNotFoundException;
+import io.github.clechasseur.deckr.exception.UnknownFieldsException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -13,6 +17,12 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
 public class ControllerExceptionHandlers {
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String concurrencyFailureHandler(ConcurrencyFailureException ex) {
+        return "Game was modified concurrently, please try again";
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String gameAlreadyHasShoeHandler(GameAlreadyHasShoeException ex) {
@@ -31,6 +41,18 @@ public class ControllerExceptionHandlers {
         return ex.getMessage();
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidNumberOfDecksHandler(InvalidNumberOfDecksException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidNumberOfCardsHandler(InvalidNumberOfCardsException ex) {
+        return ex.getMessage();
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public String playerNotFoundHandler(PlayerNotFoundException ex) {
@@ -48,4 +70,10 @@ public class ControllerExceptionHandlers {
     public String shoeNotFoundHandler(ShoeNotFoundException ex) {
         return ex.getMessage();
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String unknownFieldsHandler(UnknownFieldsException ex) {
+        return ex.getMessage();
+    }
 }
@@ -0,0 +1,67 @@
+package io.github.clechasseur.deckr.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import io.github.clechasseur.deckr.exception.UnknownFieldsException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Builds sparse representations of resources that have both a summary and a full form. Summaries are cheap to
+// load, so the full resource is only loaded when one of the requested fields is not part of the summary.
+@Component
+public class FieldSelector {
+    private static final TypeReference<Map<String, Object>> FIELDS_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, Set<String>> fieldNames = new ConcurrentHashMap<>();
+
+    public FieldSelector(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <S, F> Map<String, Object> select(Set<String> fields,
+                                             Class<S> summaryType, Supplier<S> summaryLoader,
+                                             Class<F> fullType, Supplier<F> fullLoader, Function<F, S> summarizer) {
+        Set<String> summaryFields = getFieldNames(summaryType);
+        Set<String> fullFields = getFieldNames(fullType);
+        List<String> unknownFields = fields.stream()
+                .filter(field -> !summaryFields.contains(field) && !fullFields.contains(field))
+                .collect(Collectors.toList());
+        if (!unknownFields.isEmpty()) {
+            throw new UnknownFieldsException(unknownFields);
+        }
+
+        Map<String, Object> values;
+        if (summaryFields.containsAll(fields)) {
+            values = objectMapper.convertValue(summaryLoader.get(), FIELDS_TYPE);
+        } else {
+            F full = fullLoader.get();
+            values = objectMapper.convertValue(full, FIELDS_TYPE);
+            objectMapper.convertValue(summarizer.apply(full), FIELDS_TYPE).forEach(values::putIfAbsent);
+        }
+
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String field : fields) {
+            selected.put(field, values.get(field));
+        }
+        return selected;
+    }
+
+    private Set<String> getFieldNames(Class<?> type) {
+        return fieldNames.computeIfAbsent(type, t -> objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(t))
+                .findProperties().stream()
+                .filter(BeanPropertyDefinition::couldSerialize)
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toSet()));
+    }
+}
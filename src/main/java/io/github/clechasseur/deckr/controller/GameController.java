@@ -1,17 +1,31 @@
 package io.github.clechasseur.deckr.controller;
 
-import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
+import io.github.clechasseur.deckr.exception.GameNotFoundException;
+import io.github.clechasseur.deckr.json.CardStreamWriter;
 import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.CardCount;
 import io.github.clechasseur.deckr.model.CountsBySuit;
+import io.github.clechasseur.deckr.model.DenseCards;
 import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.GameSummary;
 import io.github.clechasseur.deckr.model.PlayerAndValue;
 import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeSummary;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.service.GameHistoryService;
 import io.github.clechasseur.deckr.service.GameService;
+import io.github.clechasseur.deckr.service.PlayerService;
 import io.github.clechasseur.deckr.service.ShoeService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpStatus;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,11 +35,18 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -35,19 +56,37 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class GameController {
     private final GameService gameService;
     private final ShoeService shoeService;
+    private final PlayerService playerService;
     private final GameModelAssembler gameModelAssembler;
     private final ShoeModelAssembler shoeModelAssembler;
+    private final FieldSelector fieldSelector;
+    private final CardStreamWriter cardStreamWriter;
+    private final GameETags etags;
+    private final GameEventBroadcaster eventBroadcaster;
+    private final GameHistoryService historyService;
 
     public GameController(
             GameService gameService,
             ShoeService shoeService,
+            PlayerService playerService,
             GameModelAssembler gameModelAssembler,
-            ShoeModelAssembler shoeModelAssembler
+            ShoeModelAssembler shoeModelAssembler,
+            FieldSelector fieldSelector,
+            CardStreamWriter cardStreamWriter,
+            GameETags etags,
+            GameEventBroadcaster eventBroadcaster,
+            GameHistoryService historyService
     ) {
         this.gameService = gameService;
         this.shoeService = shoeService;
+        this.playerService = playerService;
         this.gameModelAssembler = gameModelAssembler;
         this.shoeModelAssembler = shoeModelAssembler;
+        this.fieldSelector = fieldSelector;
+        this.cardStreamWriter = cardStreamWriter;
+        this.etags = etags;
+        this.eventBroadcaster = eventBroadcaster;
+        this.historyService = historyService;
     }
 
     @PostMapping
@@ -57,10 +96,32 @@ public class GameController {
     }
 
     @GetMapping("/{id}")
-    public EntityModel<Game> getGame(@PathVariable Long id) {
+    public EntityModel<Game> getGame(@PathVariable Long id, WebRequest request) {
+        if (etags.checkGameNotModified(request, id)) {
+            return null;
+        }
         return gameModelAssembler.toModel(gameService.getGame(id));
     }
 
+    @GetMapping(value = "/{id}", params = {"view=summary", "!fields"})
+    public EntityModel<GameSummary> getGameSummary(@PathVariable Long id, WebRequest request) {
+        if (etags.checkGameNotModified(request, id)) {
+            return null;
+        }
+        return gameModelAssembler.toSummaryModel(gameService.getGameSummary(id));
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    public EntityModel<Map<String, Object>> getGameFields(@PathVariable Long id, @RequestParam Set<String> fields,
+                                                          WebRequest request) {
+        if (etags.checkGameNotModified(request, id)) {
+            return null;
+        }
+        return gameModelAssembler.toFieldsModel(id, fieldSelector.select(fields,
+                GameSummary.class, () -> gameService.getGameSummary(id),
+                Game.class, () -> gameService.getGame(id), GameSummary::of));
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteGame(@PathVariable Long id) {
@@ -75,57 +136,155 @@ public class GameController {
 
     @GetMapping("/{gameId}/shoe")
     @Transactional
-    public EntityModel<Shoe> getShoe(@PathVariable Long gameId) {
-        return shoeModelAssembler.toModel(shoeService.getShoe(getGameShoe(gameId).getId()));
+    public EntityModel<Shoe> getShoe(@PathVariable Long gameId, WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        return shoeModelAssembler.toModel(shoeService.getShoe(shoeService.getShoeIdOfGame(gameId)));
+    }
+
+    @GetMapping(value = "/{gameId}/shoe", params = {"view=summary", "!fields"})
+    public EntityModel<ShoeSummary> getShoeSummary(@PathVariable Long gameId, WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        return shoeModelAssembler.toSummaryModel(shoeService.getShoeSummaryOfGame(gameId));
+    }
+
+    @GetMapping(value = "/{gameId}/shoe", params = "fields")
+    @Transactional
+    public EntityModel<Map<String, Object>> getShoeFields(@PathVariable Long gameId,
+                                                          @RequestParam Set<String> fields,
+                                                          WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        return shoeModelAssembler.toFieldsModel(gameId, fieldSelector.select(fields,
+                ShoeSummary.class, () -> shoeService.getShoeSummaryOfGame(gameId),
+                Shoe.class, () -> shoeService.getShoe(shoeService.getShoeIdOfGame(gameId)), ShoeSummary::of));
     }
 
     @PutMapping("/{gameId}/shoe")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public void addDeckToShoe(@PathVariable Long gameId) {
-        shoeService.addDeckToShoe(getGameShoe(gameId).getId());
+    public void addDecksToShoe(@PathVariable Long gameId, @RequestParam(defaultValue = "1") int numDecks) {
+        shoeService.addDecksToShoe(shoeService.getShoeIdOfGame(gameId), numDecks);
     }
 
     @PatchMapping("/{gameId}/shoe")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public void shuffleShoe(@PathVariable Long gameId) {
-        shoeService.shuffle(getGameShoe(gameId).getId());
+    public void shuffleShoe(@PathVariable Long gameId, @RequestParam(required = false) ShuffleStrategy strategy) {
+        shoeService.shuffle(shoeService.getShoeIdOfGame(gameId), strategy);
     }
 
     @GetMapping("/{gameId}/shoe/suits")
     @Transactional
-    public EntityModel<CountsBySuit> getCountOfCardsLeftInShoeBySuit(@PathVariable Long gameId) {
-        CountsBySuit counts = new CountsBySuit(shoeService.getCountOfCardsLeftBySuit(getGameShoe(gameId).getId()));
+    public EntityModel<CountsBySuit> getCountOfCardsLeftInShoeBySuit(@PathVariable Long gameId, WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        CountsBySuit counts = new CountsBySuit(shoeService.getCountOfCardsLeftBySuit(shoeService.getShoeIdOfGame(gameId)));
         return EntityModel.of(counts,
-                linkTo(methodOn(GameController.class).getCountOfCardsLeftInShoeBySuit(gameId)).withSelfRel(),
-                linkTo(methodOn(GameController.class).getShoe(gameId)).withRel("shoe"),
-                linkTo(methodOn(GameController.class).getGame(gameId)).withRel("game"));
+                linkTo(methodOn(GameController.class).getCountOfCardsLeftInShoeBySuit(gameId, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getShoe(gameId, null)).withRel("shoe"),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
     }
 
     @GetMapping("/{gameId}/shoe/cards")
     @Transactional
-    public CollectionModel<EntityModel<CardAndSuit>> getCardsLeftInShoe(@PathVariable Long gameId) {
-        List<CardAndSuit> cards = shoeService.getCardsLeft(getGameShoe(gameId).getId());
+    public CollectionModel<EntityModel<CardAndSuit>> getCardsLeftInShoe(@PathVariable Long gameId, WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        List<CardAndSuit> cards = shoeService.getCardsLeft(shoeService.getShoeIdOfGame(gameId));
         return CollectionModel.of(cards.stream().map(EntityModel::of).collect(Collectors.toList()),
-                linkTo(methodOn(GameController.class).getCardsLeftInShoe(gameId)).withSelfRel(),
-                linkTo(methodOn(GameController.class).getShoe(gameId)).withRel("shoe"),
-                linkTo(methodOn(GameController.class).getGame(gameId)).withRel("game"));
+                linkTo(methodOn(GameController.class).getCardsLeftInShoe(gameId, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getShoe(gameId, null)).withRel("shoe"),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
+    }
+
+    @GetMapping(value = "/{gameId}/shoe/cards", params = {"stream=true", "compact!=true"})
+    @Transactional
+    public ResponseEntity<StreamingResponseBody> streamCardsLeftInShoe(@PathVariable Long gameId, WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        Stream<CardAndSuit> cards = shoeService.streamCardsLeft(shoeService.getShoeIdOfGame(gameId));
+        return ResponseEntity.ok()
+                .contentType(MediaTypes.HAL_JSON)
+                .body(cardStreamWriter.write(cards, List.of(
+                        linkTo(methodOn(GameController.class).getCardsLeftInShoe(gameId, null)).withSelfRel(),
+                        linkTo(methodOn(GameController.class).getShoe(gameId, null)).withRel("shoe"),
+                        linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"))));
+    }
+
+    @GetMapping(value = "/{gameId}/shoe/cards", params = {"dense=true", "stream!=true", "compact!=true"})
+    @Transactional
+    public EntityModel<DenseCards> getDenseCardsLeftInShoe(@PathVariable Long gameId, WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        DenseCards cards = DenseCards.of(shoeService.streamCardsLeft(shoeService.getShoeIdOfGame(gameId)));
+        return EntityModel.of(cards,
+                linkTo(methodOn(GameController.class).getDenseCardsLeftInShoe(gameId, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getShoe(gameId, null)).withRel("shoe"),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
+    }
+
+    @GetMapping(value = "/{gameId}/shoe/cards", params = "compact=true")
+    @Transactional
+    public CollectionModel<EntityModel<CardCount>> getCompactCardsLeftInShoe(@PathVariable Long gameId,
+                                                                             WebRequest request) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        List<CardCount> counts = shoeService.getCardCountsLeft(shoeService.getShoeIdOfGame(gameId));
+        return CollectionModel.of(counts.stream().map(EntityModel::of).collect(Collectors.toList()),
+                linkTo(methodOn(GameController.class).getCompactCardsLeftInShoe(gameId, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getShoe(gameId, null)).withRel("shoe"),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
     }
 
     @GetMapping("/{gameId}/players")
-    public CollectionModel<EntityModel<PlayerAndValue>> getPlayersAndValues(@PathVariable Long gameId) {
-        List<PlayerAndValue> players = gameService.getPlayersAndValues(gameId);
+    public CollectionModel<EntityModel<PlayerAndValue>> getPlayersAndValues(
+            @PathVariable Long gameId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request
+    ) {
+        if (etags.checkGameNotModified(request, gameId)) {
+            return null;
+        }
+        Pageable pageable = size != null ? PageRequest.of(page != null ? page : 0, size) : Pageable.unpaged();
+        List<PlayerAndValue> players = gameService.getPlayersAndValues(gameId, pageable);
         return CollectionModel.of(players.stream().map(EntityModel::of).collect(Collectors.toList()),
-                linkTo(methodOn(GameController.class).getPlayersAndValues(gameId)).withSelfRel(),
-                linkTo(methodOn(GameController.class).getGame(gameId)).withRel("game"));
+                linkTo(methodOn(GameController.class).getPlayersAndValues(gameId, page, size, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
     }
 
-    private Shoe getGameShoe(Long gameId) {
-        Game game = gameService.getGame(gameId);
-        if (game.getShoe() == null) {
-            throw new GameWithoutShoeException(gameId);
+    @GetMapping(value = "/{gameId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEvents(@PathVariable Long gameId) {
+        if (gameService.getRevision(gameId).isEmpty()) {
+            throw new GameNotFoundException(gameId);
         }
-        return game.getShoe();
+        return eventBroadcaster.subscribe(gameId);
+    }
+
+    @GetMapping("/{gameId}/history")
+    public CollectionModel<EntityModel<GameEventRecord>> getHistory(
+            @PathVariable Long gameId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size
+    ) {
+        Pageable pageable = size != null ? PageRequest.of(page != null ? page : 0, size) : Pageable.unpaged();
+        List<GameEventRecord> records = historyService.getHistory(gameId, pageable);
+        return CollectionModel.of(records.stream().map(EntityModel::of).collect(Collectors.toList()),
+                linkTo(methodOn(GameController.class).getHistory(gameId, page, size)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
+    }
+
+    @PutMapping("/{gameId}/deal")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void dealRound(@PathVariable Long gameId, @RequestParam int cardsEach) {
+        playerService.dealRound(gameId, cardsEach);
     }
 }
@@ -0,0 +1,45 @@
+package io.github.clechasseur.deckr.controller;
+
+import io.github.clechasseur.deckr.service.GameService;
+import io.github.clechasseur.deckr.service.PlayerService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+
+// Conditional GET support for resources that belong to a game. Their ETag is derived from the game's revision,
+// which changes whenever anything in the game does, so requests can be answered with 304 Not Modified without
+// loading the resource. Handlers must return null when a check returns true; the ETag header is set either way.
+@Component
+public class GameETags {
+    private final GameService gameService;
+    private final PlayerService playerService;
+
+    public GameETags(GameService gameService, PlayerService playerService) {
+        this.gameService = gameService;
+        this.playerService = playerService;
+    }
+
+    public boolean checkGameNotModified(WebRequest request, Long gameId) {
+        return checkNotModified(request, "g" + gameId, gameService.getRevision(gameId));
+    }
+
+    public boolean checkPlayerNotModified(WebRequest request, Long playerId) {
+        return checkNotModified(request, "p" + playerId, playerService.getGameRevision(playerId));
+    }
+
+    // If the game doesn't exist, the handler is left to return its usual error
+    private static boolean checkNotModified(WebRequest request, String owner, Optional<Long> revision) {
+        return revision
+                .map(rev -> request.checkNotModified(eTag(request, owner, rev)))
+                .orElse(false);
+    }
+
+    // The same URL can be rendered in different formats depending on the Accept header, and each needs its own
+    // strong ETag.
+    private static String eTag(WebRequest request, String owner, long revision) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return String.format("\"%s-%d-%x\"", owner, revision, accept != null ? accept.hashCode() : 0);
+    }
+}
@@ -1,10 +1,15 @@
 package io.github.clechasseur.deckr.controller;
 
 import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameSummary;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -12,9 +17,22 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class GameModelAssembler implements RepresentationModelAssembler<Game, EntityModel<Game>> {
     @Override
     public EntityModel<Game> toModel(Game game) {
-        return EntityModel.of(game,
-                linkTo(methodOn(GameController.class).getGame(game.getId())).withSelfRel(),
-                linkTo(methodOn(GameController.class).getShoe(game.getId())).withRel("shoe"),
-                linkTo(methodOn(GameController.class).getPlayersAndValues(game.getId())).withRel("players"));
+        return EntityModel.of(game, getLinks(game.getId()));
+    }
+
+    public EntityModel<GameSummary> toSummaryModel(GameSummary summary) {
+        return EntityModel.of(summary, getLinks(summary.getId()));
+    }
+
+    public EntityModel<Map<String, Object>> toFieldsModel(Long gameId, Map<String, Object> fields) {
+        return EntityModel.of(fields, getLinks(gameId));
+    }
+
+    private List<Link> getLinks(Long gameId) {
+        return List.of(
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getShoe(gameId, null)).withRel("shoe"),
+                linkTo(methodOn(GameController.class).getPlayersAndValues(gameId, null, null, null))
+                        .withRel("players"));
     }
 }
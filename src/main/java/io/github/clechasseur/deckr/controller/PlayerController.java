@@ -1,12 +1,17 @@
 package io.github.clechasseur.deckr.controller;
 
 import io.github.clechasseur.deckr.exception.PlayerWithoutGameException;
+import io.github.clechasseur.deckr.json.CardStreamWriter;
 import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.DenseCards;
 import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.PlayerSummary;
 import io.github.clechasseur.deckr.service.PlayerService;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,9 +22,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -29,10 +39,17 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class PlayerController {
     private final PlayerService playerService;
     private final PlayerModelAssembler playerModelAssembler;
+    private final FieldSelector fieldSelector;
+    private final CardStreamWriter cardStreamWriter;
+    private final GameETags etags;
 
-    public PlayerController(PlayerService playerService, PlayerModelAssembler playerModelAssembler) {
+    public PlayerController(PlayerService playerService, PlayerModelAssembler playerModelAssembler,
+                            FieldSelector fieldSelector, CardStreamWriter cardStreamWriter, GameETags etags) {
         this.playerService = playerService;
         this.playerModelAssembler = playerModelAssembler;
+        this.fieldSelector = fieldSelector;
+        this.cardStreamWriter = cardStreamWriter;
+        this.etags = etags;
     }
 
     @PostMapping
@@ -49,6 +66,18 @@ public class PlayerController {
         return playerModelAssembler.toModel(playerService.getPlayer(id));
     }
 
+    @GetMapping(value = "/{id}", params = {"view=summary", "!fields"})
+    public EntityModel<PlayerSummary> getPlayerSummary(@PathVariable Long id) {
+        return playerModelAssembler.toSummaryModel(playerService.getPlayerSummary(id));
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    public EntityModel<Map<String, Object>> getPlayerFields(@PathVariable Long id, @RequestParam Set<String> fields) {
+        return playerModelAssembler.toFieldsModel(id, fieldSelector.select(fields,
+                PlayerSummary.class, () -> playerService.getPlayerSummary(id),
+                Player.class, () -> playerService.getPlayer(id), PlayerSummary::of));
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deletePlayer(@PathVariable Long id) {
@@ -56,10 +85,36 @@ public class PlayerController {
     }
 
     @GetMapping("/{playerId}/hand")
-    public CollectionModel<EntityModel<CardAndSuit>> getCards(@PathVariable Long playerId) {
+    public CollectionModel<EntityModel<CardAndSuit>> getCards(@PathVariable Long playerId, WebRequest request) {
+        if (etags.checkPlayerNotModified(request, playerId)) {
+            return null;
+        }
         List<CardAndSuit> cards = playerService.getCards(playerId);
         return CollectionModel.of(cards.stream().map(EntityModel::of).collect(Collectors.toList()),
-                linkTo(methodOn(PlayerController.class).getCards(playerId)).withSelfRel(),
+                linkTo(methodOn(PlayerController.class).getCards(playerId, null)).withSelfRel(),
+                linkTo(methodOn(PlayerController.class).getPlayer(playerId)).withRel("player"));
+    }
+
+    @GetMapping(value = "/{playerId}/hand", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamCards(@PathVariable Long playerId, WebRequest request) {
+        if (etags.checkPlayerNotModified(request, playerId)) {
+            return null;
+        }
+        Stream<CardAndSuit> cards = playerService.streamCards(playerId);
+        return ResponseEntity.ok()
+                .contentType(MediaTypes.HAL_JSON)
+                .body(cardStreamWriter.write(cards, List.of(
+                        linkTo(methodOn(PlayerController.class).getCards(playerId, null)).withSelfRel(),
+                        linkTo(methodOn(PlayerController.class).getPlayer(playerId)).withRel("player"))));
+    }
+
+    @GetMapping(value = "/{playerId}/hand", params = {"dense=true", "stream!=true"})
+    public EntityModel<DenseCards> getDenseCards(@PathVariable Long playerId, WebRequest request) {
+        if (etags.checkPlayerNotModified(request, playerId)) {
+            return null;
+        }
+        return EntityModel.of(DenseCards.of(playerService.streamCards(playerId)),
+                linkTo(methodOn(PlayerController.class).getDenseCards(playerId, null)).withSelfRel(),
                 linkTo(methodOn(PlayerController.class).getPlayer(playerId)).withRel("player"));
     }
 
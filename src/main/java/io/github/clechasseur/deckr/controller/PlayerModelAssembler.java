@@ -1,10 +1,15 @@
 package io.github.clechasseur.deckr.controller;
 
 import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.PlayerSummary;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -12,8 +17,20 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class PlayerModelAssembler implements RepresentationModelAssembler<Player, EntityModel<Player>> {
     @Override
     public EntityModel<Player> toModel(Player player) {
-        return EntityModel.of(player,
-                linkTo(methodOn(PlayerController.class).getPlayer(player.getId())).withSelfRel(),
-                linkTo(methodOn(PlayerController.class).getCards(player.getId())).withRel("hand"));
+        return EntityModel.of(player, getLinks(player.getId()));
+    }
+
+    public EntityModel<PlayerSummary> toSummaryModel(PlayerSummary summary) {
+        return EntityModel.of(summary, getLinks(summary.getId()));
+    }
+
+    public EntityModel<Map<String, Object>> toFieldsModel(Long playerId, Map<String, Object> fields) {
+        return EntityModel.of(fields, getLinks(playerId));
+    }
+
+    private List<Link> getLinks(Long playerId) {
+        return List.of(
+                linkTo(methodOn(PlayerController.class).getPlayer(playerId)).withSelfRel(),
+                linkTo(methodOn(PlayerController.class).getCards(playerId, null)).withRel("hand"));
     }
 }
@@ -1,10 +1,15 @@
 package io.github.clechasseur.deckr.controller;
 
 import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeSummary;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -12,8 +17,20 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class ShoeModelAssembler implements RepresentationModelAssembler<Shoe, EntityModel<Shoe>> {
     @Override
     public EntityModel<Shoe> toModel(Shoe shoe) {
-        return EntityModel.of(shoe,
-                linkTo(methodOn(GameController.class).getShoe(shoe.getGame().getId())).withSelfRel(),
-                linkTo(methodOn(GameController.class).getGame(shoe.getGame().getId())).withRel("game"));
+        return EntityModel.of(shoe, getLinks(shoe.getGame().getId()));
+    }
+
+    public EntityModel<ShoeSummary> toSummaryModel(ShoeSummary summary) {
+        return EntityModel.of(summary, getLinks(summary.getGameId()));
+    }
+
+    public EntityModel<Map<String, Object>> toFieldsModel(Long gameId, Map<String, Object> fields) {
+        return EntityModel.of(fields, getLinks(gameId));
+    }
+
+    private List<Link> getLinks(Long gameId) {
+        return List.of(
+                linkTo(methodOn(GameController.class).getShoe(gameId, null)).withSelfRel(),
+                linkTo(methodOn(GameController.class).getGame(gameId, null)).withRel("game"));
     }
 }
@@ -0,0 +1,444 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.PlayerNotFoundException;
+import io.github.clechasseur.deckr.exception.ShoeNotFoundException;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.service.ShuffleService;
+import io.github.clechasseur.deckr.util.CardUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Optional mode where active games are kept in memory and are the source of truth. Changes are applied to the
+// in-memory game under its lock, then written to the database in batches in the background. This only works
+// when a single instance of the application uses the database.
+@Component
+public class GameEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameEngine.class);
+
+    private final GameEngineStore store;
+    private final ShuffleService shuffleService;
+    private final boolean enabled;
+    private final int flushAfterMutations;
+    private final Duration evictAfterIdle;
+    private final ExecutorService flushExecutor;
+
+    private final Map<Long, LiveGame> games = new ConcurrentHashMap<>();
+    private final Map<Long, Long> shoeGameIds = new ConcurrentHashMap<>();
+    private final Map<Long, Long> playerGameIds = new ConcurrentHashMap<>();
+
+    public GameEngine(GameEngineStore store, ShuffleService shuffleService,
+                      @Value("${deckr.engine.in-memory:false}") boolean enabled,
+                      @Value("${deckr.engine.flush-after-mutations:100}") int flushAfterMutations,
+                      @Value("${deckr.engine.evict-after-idle:10m}") Duration evictAfterIdle) {
+        this.store = store;
+        this.shuffleService = shuffleService;
+        this.enabled = enabled;
+        this.flushAfterMutations = flushAfterMutations;
+        this.evictAfterIdle = evictAfterIdle;
+        this.flushExecutor = enabled ? Executors.newSingleThreadExecutor() : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Game getGame(Long gameId) {
+        return withLiveGame(gameId, false, LiveGame::toGame);
+    }
+
+    public long getRevision(Long gameId) {
+        return withLiveGame(gameId, false, LiveGame::getRevision);
+    }
+
+    public long getRevisionOfPlayer(Long playerId) {
+        return getRevision(getGameIdOfPlayer(playerId));
+    }
+
+    public Shoe getShoe(Long shoeId) {
+        return withLiveGame(getGameIdOfShoe(shoeId), false, game -> {
+            getShoe(game, shoeId);
+            return game.toGame().getShoe();
+        });
+    }
+
+    public Player getPlayer(Long playerId) {
+        return withLiveGame(getGameIdOfPlayer(playerId), false, game -> {
+            Game view = game.toGame();
+            return view.getPlayers().stream()
+                    .filter(player -> player.getId().equals(playerId))
+                    .findFirst()
+                    .orElseThrow(() -> new PlayerNotFoundException(playerId));
+        });
+    }
+
+    // Players sorted like PlayerRepository.findByGameIdOrderByHandValueDescNameAsc
+    public List<Player> getPlayersByValue(Long gameId) {
+        List<Player> players = new ArrayList<>(getGame(gameId).getPlayers());
+        players.sort(Comparator.comparing(Player::getHandValue).reversed()
+                .thenComparing(Player::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return players;
+    }
+
+    public void addDecks(Long shoeId, byte[] decks, int numDecks) {
+        withLiveGame(getGameIdOfShoe(shoeId), true, game -> {
+            getShoe(game, shoeId).append(decks);
+            game.record(GameEvent.decksAdded(numDecks), null);
+            return null;
+        });
+    }
+
+    // Same as ShoeService.shuffle
+    public ShuffleStrategy shuffle(Long shoeId, ShuffleStrategy strategy) {
+        return withLiveGame(getGameIdOfShoe(shoeId), true, game -> {
+            LiveShoe shoe = getShoe(game, shoeId);
+            if (strategy != null) {
+                shoe.setShuffleStrategy(strategy);
+            }
+            ShuffleStrategy actualStrategy = shoe.getShuffleStrategy() != null
+                    ? shoe.getShuffleStrategy()
+                    : shuffleService.getDefaultStrategy();
+            if (shoe.getNumCardsLeft() != 0 && actualStrategy == ShuffleStrategy.OnDraw) {
+                shoe.shuffleOnDraw();
+            } else if (shoe.getNumCardsLeft() != 0) {
+                byte[] cards = shoe.getCardsLeft();
+                shuffleService.shuffle(cards, actualStrategy);
+                shoe.replace(cards);
+            }
+            if (strategy == null && shoe.getNumCardsLeft() == 0) {
+                return null;
+            }
+            game.record(GameEvent.shuffled(actualStrategy), null);
+            return actualStrategy;
+        });
+    }
+
+    // Returns the number of cards dealt, which is less than requested if the shoe runs out
+    public int dealCards(Long playerId, int numCards) {
+        return withLiveGame(getGameIdOfPlayer(playerId), true, game -> {
+            LivePlayer player = game.getPlayer(playerId);
+            if (player == null) {
+                throw new PlayerNotFoundException(playerId);
+            }
+            byte[] cards = getShoe(game).draw(numCards);
+            player.addCardsToHand(cards);
+            if (cards.length != 0) {
+                game.record(GameEvent.cardsDealt(playerId, cards.length), cards);
+            }
+            return cards.length;
+        });
+    }
+
+    // Returns the number of cards dealt to all players
+    public int dealRound(Long gameId, int cardsEach) {
+        return withLiveGame(gameId, true, game -> {
+            LiveShoe shoe = getShoe(game);
+            List<LivePlayer> players = game.getPlayers();
+            if (players.isEmpty()) {
+                return 0;
+            }
+            byte[] cardsDealt = shoe.draw((int) Math.min((long) cardsEach * players.size(), Integer.MAX_VALUE));
+            byte[][] hands = CardUtils.dealAround(cardsDealt, players.size());
+            for (int seat = 0; seat < players.size(); seat++) {
+                LivePlayer player = players.get(seat);
+                player.addCardsToHand(hands[seat]);
+                if (hands[seat].length != 0) {
+                    game.record(GameEvent.cardsDealt(player.getId(), hands[seat].length), hands[seat]);
+                }
+            }
+            return cardsDealt.length;
+        });
+    }
+
+    // The following are called when rows are created or deleted in the database, so that games already
+    // in memory stay in sync. Games that are not in memory will see the changes when they are loaded.
+    // Changes are only applied once the transaction commits, so that a rolled back (or retried) attempt
+    // doesn't leave a shoe or player in memory that doesn't exist in the database, or remove one that still does.
+
+    public void shoeCreated(Shoe shoe) {
+        if (enabled) {
+            Long gameId = shoe.getGame().getId();
+            Long shoeId = shoe.getId();
+            afterCommit(() -> ifLive(gameId, game -> {
+                if (game.getShoe() == null) {
+                    game.setShoe(new LiveShoe(shoeId));
+                }
+            }));
+        }
+    }
+
+    public void playerCreated(Player player) {
+        if (enabled) {
+            Long gameId = player.getGame().getId();
+            LivePlayer livePlayer = new LivePlayer(player);
+            afterCommit(() -> ifLive(gameId, game -> game.addPlayer(livePlayer)));
+        }
+    }
+
+    public void playerDeleted(Long playerId) {
+        if (enabled) {
+            afterCommit(() -> {
+                Long gameId = playerGameIds.remove(playerId);
+                if (gameId != null) {
+                    ifLive(gameId, game -> game.removePlayer(playerId));
+                }
+            });
+        }
+    }
+
+    public void gameDeleted(Long gameId) {
+        if (enabled) {
+            LiveGame game = games.get(gameId);
+            if (game != null) {
+                // Like when evicting idle games, waits for snapshots being saved. The flush lock is then held until
+                // the transaction completes, so that no snapshot is saved while the game's rows are being deleted.
+                game.getFlushLock().lock();
+                List<GameEventRecord> events;
+                game.getLock().lock();
+                try {
+                    events = game.takeEvents();
+                } finally {
+                    game.getLock().unlock();
+                }
+                afterCompletion(committed -> {
+                    game.getLock().lock();
+                    try {
+                        if (committed) {
+                            evict(game);
+                        } else {
+                            game.restoreEvents(events);
+                        }
+                    } finally {
+                        game.getLock().unlock();
+                        game.getFlushLock().unlock();
+                    }
+                });
+                // History outlives the game; this is called in the transaction deleting it
+                store.saveEvents(events);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${deckr.engine.flush-interval:1000}")
+    public void flushAndEvict() {
+        if (enabled) {
+            long now = System.nanoTime();
+            for (LiveGame game : games.values()) {
+                flush(game);
+                if (now - game.getLastAccess() > evictAfterIdle.toNanos()) {
+                    // Holding the flush lock makes sure no snapshot of the game is still being saved
+                    game.getFlushLock().lock();
+                    game.getLock().lock();
+                    try {
+                        // Might have been used since it was flushed; it'll be evicted next time
+                        if (!game.isDirty()) {
+                            evict(game);
+                        }
+                    } finally {
+                        game.getLock().unlock();
+                        game.getFlushLock().unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    public void flushAll() {
+        if (enabled) {
+            for (LiveGame game : games.values()) {
+                flush(game);
+            }
+        }
+    }
+
+    // Saves what changed in the game if it's loaded, so that it can be read from the database
+    public void flushGame(Long gameId) {
+        if (enabled) {
+            LiveGame game = games.get(gameId);
+            if (game != null) {
+                flush(game);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (enabled) {
+            flushExecutor.shutdown();
+            if (!flushExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Timed out waiting for pending game flushes");
+            }
+            flushAll();
+        }
+    }
+
+    private void flush(LiveGame game) {
+        game.getFlushLock().lock();
+        try {
+            GameSnapshot snapshot;
+            game.getLock().lock();
+            try {
+                // Evicted games have nothing left to save, and deleted games must not be saved again
+                if (game.isEvicted()) {
+                    return;
+                }
+                snapshot = game.takeSnapshot();
+            } finally {
+                game.getLock().unlock();
+            }
+            if (!snapshot.isEmpty()) {
+                try {
+                    store.save(snapshot);
+                } catch (RuntimeException ex) {
+                    LOGGER.error("Failed to save game {}, will retry on next flush", game.getId(), ex);
+                    game.getLock().lock();
+                    try {
+                        game.restoreSnapshot(snapshot);
+                    } finally {
+                        game.getLock().unlock();
+                    }
+                }
+            }
+        } finally {
+            game.getFlushLock().unlock();
+        }
+    }
+
+    private <T> T withLiveGame(Long gameId, boolean mutation, Function<LiveGame, T> action) {
+        while (true) {
+            LiveGame game = games.computeIfAbsent(gameId, this::loadGame);
+            game.getLock().lock();
+            try {
+                // If the game was evicted while we waited for the lock, load it again
+                if (!game.isEvicted()) {
+                    T result = action.apply(game);
+                    game.touch();
+                    if (mutation) {
+                        game.revise();
+                        if (game.mutated() == flushAfterMutations) {
+                            flushExecutor.execute(() -> flush(game));
+                        }
+                    }
+                    return result;
+                }
+            } finally {
+                game.getLock().unlock();
+            }
+        }
+    }
+
+    private void ifLive(Long gameId, Consumer<LiveGame> action) {
+        LiveGame game = games.get(gameId);
+        if (game != null) {
+            game.getLock().lock();
+            try {
+                if (!game.isEvicted()) {
+                    action.accept(game);
+                    game.revise();
+                    indexGame(game);
+                }
+            } finally {
+                game.getLock().unlock();
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Outside a transaction, the action is run right away as if a transaction had been committed
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    private LiveGame loadGame(Long gameId) {
+        LiveGame game = store.load(gameId);
+        indexGame(game);
+        return game;
+    }
+
+    private void indexGame(LiveGame game) {
+        if (game.getShoe() != null) {
+            shoeGameIds.put(game.getShoe().getId(), game.getId());
+        }
+        for (LivePlayer player : game.getPlayers()) {
+            playerGameIds.put(player.getId(), game.getId());
+        }
+    }
+
+    // Must be called while holding the game's lock
+    private void evict(LiveGame game) {
+        game.setEvicted(true);
+        games.remove(game.getId(), game);
+        if (game.getShoe() != null) {
+            shoeGameIds.remove(game.getShoe().getId());
+        }
+        for (LivePlayer player : game.getPlayers()) {
+            playerGameIds.remove(player.getId());
+        }
+    }
+
+    private Long getGameIdOfShoe(Long shoeId) {
+        return shoeGameIds.computeIfAbsent(shoeId, store::findGameIdOfShoe);
+    }
+
+    private Long getGameIdOfPlayer(Long playerId) {
+        return playerGameIds.computeIfAbsent(playerId, store::findGameIdOfPlayer);
+    }
+
+    private static LiveShoe getShoe(LiveGame game) {
+        if (game.getShoe() == null) {
+            throw new GameWithoutShoeException(game.getId());
+        }
+        return game.getShoe();
+    }
+
+    private static LiveShoe getShoe(LiveGame game, Long shoeId) {
+        if (game.getShoe() == null || !game.getShoe().getId().equals(shoeId)) {
+            throw new ShoeNotFoundException(shoeId);
+        }
+        return game.getShoe();
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.exception.GameNotFoundException;
+import io.github.clechasseur.deckr.exception.PlayerNotFoundException;
+import io.github.clechasseur.deckr.exception.ShoeNotFoundException;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.repository.GameEventRecordRepository;
+import io.github.clechasseur.deckr.repository.GameRepository;
+import io.github.clechasseur.deckr.repository.PlayerRepository;
+import io.github.clechasseur.deckr.repository.ShoeChunkRepository;
+import io.github.clechasseur.deckr.repository.ShoeRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Loads live games from the database and saves their snapshots back
+@Component
+public class GameEngineStore {
+    private final GameRepository gameRepository;
+    private final ShoeRepository shoeRepository;
+    private final ShoeChunkRepository shoeChunkRepository;
+    private final PlayerRepository playerRepository;
+    private final GameEventRecordRepository gameEventRecordRepository;
+
+    public GameEngineStore(GameRepository gameRepository, ShoeRepository shoeRepository,
+                           ShoeChunkRepository shoeChunkRepository, PlayerRepository playerRepository,
+                           GameEventRecordRepository gameEventRecordRepository) {
+        this.gameRepository = gameRepository;
+        this.shoeRepository = shoeRepository;
+        this.shoeChunkRepository = shoeChunkRepository;
+        this.playerRepository = playerRepository;
+        this.gameEventRecordRepository = gameEventRecordRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public LiveGame load(Long gameId) {
+        Game game = gameRepository.findWithPlayersById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+        // Starts from the revision served when the game isn't in memory, so that ETags don't go back
+        long revision = game.getRevision() + (game.getShoe() != null ? game.getShoe().getVersion() : 0)
+                + (game.getPlayers() != null ? game.getPlayers().stream().mapToLong(Player::getVersion).sum() : 0);
+        LiveGame liveGame = new LiveGame(game.getId(), game.getName(), revision);
+        Shoe shoe = game.getShoe();
+        if (shoe != null) {
+            liveGame.setShoe(LiveShoe.load(shoe, shoeChunkRepository.findByShoeIdOrderByChunkIndex(shoe.getId())));
+        }
+        if (game.getPlayers() != null) {
+            for (Player player : game.getPlayers()) {
+                liveGame.addPlayer(new LivePlayer(player));
+            }
+        }
+        return liveGame;
+    }
+
+    @Transactional(readOnly = true)
+    public Long findGameIdOfShoe(Long shoeId) {
+        return shoeRepository.findById(shoeId)
+                .map(shoe -> shoe.getGame().getId())
+                .orElseThrow(() -> new ShoeNotFoundException(shoeId));
+    }
+
+    @Transactional(readOnly = true)
+    public Long findGameIdOfPlayer(Long playerId) {
+        return playerRepository.findById(playerId)
+                .map(player -> player.getGame().getId())
+                .orElseThrow(() -> new PlayerNotFoundException(playerId));
+    }
+
+    // Rows that have been deleted since the snapshot was taken are skipped.
+    @Transactional
+    public void save(GameSnapshot snapshot) {
+        if (snapshot.getRevision() != null) {
+            gameRepository.advanceRevision(snapshot.getGameId(), snapshot.getRevision());
+        }
+        if (snapshot.getShoe() != null) {
+            shoeRepository.findById(snapshot.getShoe().getId()).ifPresent(shoe -> saveShoe(shoe, snapshot.getShoe()));
+        }
+        if (!snapshot.getPlayers().isEmpty()) {
+            Map<Long, GameSnapshot.PlayerSnapshot> playerSnapshots = snapshot.getPlayers().stream()
+                    .collect(Collectors.toMap(GameSnapshot.PlayerSnapshot::getId, Function.identity()));
+            List<Player> players = playerRepository.findAllById(playerSnapshots.keySet());
+            for (Player player : players) {
+                GameSnapshot.PlayerSnapshot playerSnapshot = playerSnapshots.get(player.getId());
+                player.setHand(playerSnapshot.getHand());
+                player.setHandValue(playerSnapshot.getHandValue());
+                player.setCardCount(playerSnapshot.getCardCount());
+            }
+            playerRepository.saveAll(players);
+        }
+        saveEvents(snapshot.getEvents());
+    }
+
+    public void saveEvents(List<GameEventRecord> events) {
+        if (!events.isEmpty()) {
+            gameEventRecordRepository.saveAll(events);
+        }
+    }
+
+    private void saveShoe(Shoe shoe, GameSnapshot.ShoeSnapshot snapshot) {
+        shoe.setNumCards(snapshot.getNumCards());
+        shoe.setNextCard(snapshot.getNextCard());
+        shoe.setLazyShuffleEnd(snapshot.getLazyShuffleEnd());
+        shoe.setCardCounts(snapshot.getCardCounts());
+        shoe.setShuffleStrategy(snapshot.getShuffleStrategy());
+
+        // Same layout as ShoeService: chunks that have been completely dealt are gone, as are those past the end
+        int numChunks = ShoeChunk.chunkIndexOf(snapshot.getNumCards() + ShoeChunk.SIZE - 1);
+        shoeChunkRepository.deleteByShoeIdAndChunkIndexLessThan(shoe.getId(),
+                ShoeChunk.chunkIndexOf(snapshot.getNextCard()));
+        shoeChunkRepository.deleteByShoeIdAndChunkIndexGreaterThanEqual(shoe.getId(), numChunks);
+
+        if (!snapshot.getChunks().isEmpty()) {
+            Map<Integer, ShoeChunk> existingChunks = new HashMap<>();
+            for (ShoeChunk chunk : shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(shoe.getId(),
+                    Collections.min(snapshot.getChunks().keySet()), Collections.max(snapshot.getChunks().keySet()))) {
+                existingChunks.put(chunk.getChunkIndex(), chunk);
+            }
+            List<ShoeChunk> chunks = new ArrayList<>(snapshot.getChunks().size());
+            snapshot.getChunks().forEach((chunkIndex, cards) -> {
+                ShoeChunk chunk = existingChunks.get(chunkIndex);
+                if (chunk != null) {
+                    chunk.setCards(cards);
+                } else {
+                    chunk = new ShoeChunk(shoe, chunkIndex, cards);
+                }
+                chunks.add(chunk);
+            });
+            shoeChunkRepository.saveAll(chunks);
+        }
+        shoeRepository.save(shoe);
+    }
+}
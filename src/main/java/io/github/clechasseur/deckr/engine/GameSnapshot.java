@@ -0,0 +1,131 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+
+import java.util.List;
+import java.util.Map;
+
+// Changes made to a live game since its last flush, copied so that they can be saved outside the game's lock
+public class GameSnapshot {
+    private final Long gameId;
+    // Null if the revision did not change
+    private final Long revision;
+    private final ShoeSnapshot shoe;
+    private final List<PlayerSnapshot> players;
+    // History records to append
+    private final List<GameEventRecord> events;
+
+    public GameSnapshot(Long gameId, Long revision, ShoeSnapshot shoe, List<PlayerSnapshot> players,
+                        List<GameEventRecord> events) {
+        this.gameId = gameId;
+        this.revision = revision;
+        this.shoe = shoe;
+        this.players = players;
+        this.events = events;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public ShoeSnapshot getShoe() {
+        return shoe;
+    }
+
+    public List<PlayerSnapshot> getPlayers() {
+        return players;
+    }
+
+    public List<GameEventRecord> getEvents() {
+        return events;
+    }
+
+    public boolean isEmpty() {
+        return revision == null && shoe == null && players.isEmpty() && events.isEmpty();
+    }
+
+    public static class ShoeSnapshot {
+        private final Long id;
+        private final int numCards;
+        private final int nextCard;
+        private final int lazyShuffleEnd;
+        private final int[] cardCounts;
+        private final ShuffleStrategy shuffleStrategy;
+        // Full content of the chunks that changed, by chunk index
+        private final Map<Integer, byte[]> chunks;
+
+        public ShoeSnapshot(Long id, int numCards, int nextCard, int lazyShuffleEnd, int[] cardCounts,
+                            ShuffleStrategy shuffleStrategy, Map<Integer, byte[]> chunks) {
+            this.id = id;
+            this.numCards = numCards;
+            this.nextCard = nextCard;
+            this.lazyShuffleEnd = lazyShuffleEnd;
+            this.cardCounts = cardCounts;
+            this.shuffleStrategy = shuffleStrategy;
+            this.chunks = chunks;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public int getNumCards() {
+            return numCards;
+        }
+
+        public int getNextCard() {
+            return nextCard;
+        }
+
+        public int getLazyShuffleEnd() {
+            return lazyShuffleEnd;
+        }
+
+        public int[] getCardCounts() {
+            return cardCounts;
+        }
+
+        public ShuffleStrategy getShuffleStrategy() {
+            return shuffleStrategy;
+        }
+
+        public Map<Integer, byte[]> getChunks() {
+            return chunks;
+        }
+    }
+
+    public static class PlayerSnapshot {
+        private final Long id;
+        private final byte[] hand;
+        private final int handValue;
+        private final int cardCount;
+
+        public PlayerSnapshot(Long id, byte[] hand, int handValue, int cardCount) {
+            this.id = id;
+            this.hand = hand;
+            this.handValue = handValue;
+            this.cardCount = cardCount;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public byte[] getHand() {
+            return hand;
+        }
+
+        public int getHandValue() {
+            return handValue;
+        }
+
+        public int getCardCount() {
+            return cardCount;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.Player;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory state of a game. All access must be done while holding the game's lock.
+public class LiveGame {
+    private final Long id;
+    private final String name;
+    private final Lock lock = new ReentrantLock();
+    // Held while saving the game so that flushes of the same game are saved in order
+    private final Lock flushLock = new ReentrantLock();
+    private LiveShoe shoe;
+    private final Map<Long, LivePlayer> players = new LinkedHashMap<>();
+    // History records not saved yet
+    private List<GameEventRecord> events = new ArrayList<>();
+    private int mutations;
+    private long revision;
+    // Whether the revision changed since the last snapshot
+    private boolean revisionChanged;
+    private long lastAccess;
+    private boolean evicted;
+    // Built on the first read after a change and shared by reads until the next change
+    private Game view;
+
+    LiveGame(Long id, String name, long revision) {
+        this.id = id;
+        this.name = name;
+        this.revision = revision;
+        this.lastAccess = System.nanoTime();
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    Lock getLock() {
+        return lock;
+    }
+
+    Lock getFlushLock() {
+        return flushLock;
+    }
+
+    LiveShoe getShoe() {
+        return shoe;
+    }
+
+    void setShoe(LiveShoe shoe) {
+        this.shoe = shoe;
+    }
+
+    LivePlayer getPlayer(Long playerId) {
+        return players.get(playerId);
+    }
+
+    // Players in seating order, which is the order in which they joined
+    List<LivePlayer> getPlayers() {
+        List<LivePlayer> seated = new ArrayList<>(players.values());
+        seated.sort(Comparator.comparing(LivePlayer::getId));
+        return seated;
+    }
+
+    void addPlayer(LivePlayer player) {
+        players.putIfAbsent(player.getId(), player);
+    }
+
+    void removePlayer(Long playerId) {
+        players.remove(playerId);
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    // Returns the number of mutations since the last snapshot
+    int mutated() {
+        return ++mutations;
+    }
+
+    void record(GameEvent event, byte[] cards) {
+        events.add(new GameEventRecord(id, event, cards, Instant.now()));
+    }
+
+    List<GameEventRecord> takeEvents() {
+        List<GameEventRecord> eventsTaken = events;
+        events = new ArrayList<>();
+        return eventsTaken;
+    }
+
+    void restoreEvents(List<GameEventRecord> eventsTaken) {
+        events.addAll(0, eventsTaken);
+    }
+
+    long getRevision() {
+        return revision;
+    }
+
+    void revise() {
+        revision++;
+        revisionChanged = true;
+        view = null;
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    void setEvicted(boolean evicted) {
+        this.evicted = evicted;
+    }
+
+    boolean isDirty() {
+        return mutations != 0 || revisionChanged;
+    }
+
+    // The game returned is shared until the game changes, so it must not be modified
+    Game toGame() {
+        if (view == null) {
+            view = createView();
+        }
+        return view;
+    }
+
+    private Game createView() {
+        Game game = new Game();
+        game.setId(id);
+        game.setName(name);
+        if (shoe != null) {
+            game.setShoe(shoe.toShoe(game));
+        }
+        List<Player> gamePlayers = new ArrayList<>(players.size());
+        for (LivePlayer player : players.values()) {
+            gamePlayers.add(player.toPlayer(game));
+        }
+        game.setPlayers(gamePlayers);
+        return game;
+    }
+
+    GameSnapshot takeSnapshot() {
+        GameSnapshot.ShoeSnapshot shoeSnapshot = shoe != null ? shoe.takeSnapshot() : null;
+        List<GameSnapshot.PlayerSnapshot> playerSnapshots = new ArrayList<>();
+        for (LivePlayer player : players.values()) {
+            GameSnapshot.PlayerSnapshot playerSnapshot = player.takeSnapshot();
+            if (playerSnapshot != null) {
+                playerSnapshots.add(playerSnapshot);
+            }
+        }
+        Long revisionSnapshot = revisionChanged ? revision : null;
+        mutations = 0;
+        revisionChanged = false;
+        return new GameSnapshot(id, revisionSnapshot, shoeSnapshot, playerSnapshots, takeEvents());
+    }
+
+    void restoreSnapshot(GameSnapshot snapshot) {
+        if (shoe != null && snapshot.getShoe() != null && shoe.getId().equals(snapshot.getShoe().getId())) {
+            shoe.restoreSnapshot(snapshot.getShoe());
+        }
+        for (GameSnapshot.PlayerSnapshot playerSnapshot : snapshot.getPlayers()) {
+            LivePlayer player = players.get(playerSnapshot.getId());
+            if (player != null) {
+                player.restoreSnapshot();
+            }
+        }
+        if (snapshot.getRevision() != null) {
+            revisionChanged = true;
+        }
+        events.addAll(0, snapshot.getEvents());
+        mutations++;
+    }
+}
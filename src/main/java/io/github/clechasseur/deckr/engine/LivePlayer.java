@@ -0,0 +1,68 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.util.ArrayUtils;
+import io.github.clechasseur.deckr.util.CardUtils;
+
+// In-memory state of a player
+class LivePlayer {
+    private final Long id;
+    private final String name;
+    private byte[] hand;
+    private int handValue;
+    private int cardCount;
+    private boolean dirty;
+
+    LivePlayer(Player player) {
+        this.id = player.getId();
+        this.name = player.getName();
+        this.hand = ArrayUtils.orEmptyArray(player.getHand());
+        this.handValue = player.getHandValue();
+        this.cardCount = player.getCardCount();
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getHandValue() {
+        return handValue;
+    }
+
+    void addCardsToHand(byte[] cards) {
+        if (cards.length != 0) {
+            hand = CardUtils.concat(hand, cards);
+            handValue += CardUtils.sumValues(cards);
+            cardCount += cards.length;
+            dirty = true;
+        }
+    }
+
+    Player toPlayer(Game game) {
+        Player player = new Player();
+        player.setId(id);
+        player.setGame(game);
+        player.setName(name);
+        player.setHand(hand.clone());
+        player.setHandValue(handValue);
+        player.setCardCount(cardCount);
+        return player;
+    }
+
+    GameSnapshot.PlayerSnapshot takeSnapshot() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        return new GameSnapshot.PlayerSnapshot(id, hand.clone(), handValue, cardCount);
+    }
+
+    void restoreSnapshot() {
+        dirty = true;
+    }
+}
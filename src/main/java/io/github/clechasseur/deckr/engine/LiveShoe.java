@@ -0,0 +1,186 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.util.ArrayUtils;
+import io.github.clechasseur.deckr.util.CardUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// In-memory state of a shoe. Positions are the same as in the persisted chunks, but cards before base
+// (which have all been dealt) are not kept in memory. base is always the start of a chunk.
+class LiveShoe {
+    private final Long id;
+    private byte[] cards;
+    private int base;
+    private int numCards;
+    private int nextCard;
+    private int lazyShuffleEnd;
+    private int[] cardCounts;
+    private ShuffleStrategy shuffleStrategy;
+
+    // Range of positions whose content changed since the last snapshot
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo;
+    private boolean dirty;
+
+    LiveShoe(Long id) {
+        this.id = id;
+        this.cards = ArrayUtils.EMPTY_BYTE_ARRAY;
+        this.cardCounts = new int[CardAndSuit.DISTINCT_CARDS];
+    }
+
+    static LiveShoe load(Shoe shoe, List<ShoeChunk> chunks) {
+        LiveShoe liveShoe = new LiveShoe(shoe.getId());
+        liveShoe.numCards = shoe.getNumCards();
+        liveShoe.nextCard = shoe.getNextCard();
+        liveShoe.lazyShuffleEnd = shoe.getLazyShuffleEnd();
+        liveShoe.shuffleStrategy = shoe.getShuffleStrategy();
+        liveShoe.base = chunks.isEmpty() ? shoe.getNumCards() : chunks.get(0).getStartPosition();
+        liveShoe.cards = new byte[liveShoe.numCards - liveShoe.base];
+        ShoeChunk.copyCards(chunks, liveShoe.base, liveShoe.numCards, liveShoe.cards, 0);
+        liveShoe.cardCounts = shoe.getCardCounts() != null
+                ? shoe.getCardCounts().clone()
+                : CardUtils.countCards(liveShoe.cards, liveShoe.nextCard - liveShoe.base, liveShoe.cards.length);
+        return liveShoe;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    int getNumCardsLeft() {
+        return numCards - nextCard;
+    }
+
+    int[] getCardCounts() {
+        return cardCounts.clone();
+    }
+
+    ShuffleStrategy getShuffleStrategy() {
+        return shuffleStrategy;
+    }
+
+    void setShuffleStrategy(ShuffleStrategy shuffleStrategy) {
+        this.shuffleStrategy = shuffleStrategy;
+        dirty = true;
+    }
+
+    byte[] getCardsLeft() {
+        return Arrays.copyOfRange(cards, nextCard - base, numCards - base);
+    }
+
+    void append(byte[] newCards) {
+        if (numCards - base + newCards.length > cards.length) {
+            // Drop the chunks that have been completely dealt while we're at it
+            int newBase = ShoeChunk.chunkIndexOf(nextCard) * ShoeChunk.SIZE;
+            byte[] newArray = new byte[Math.max(cards.length * 2, numCards - newBase + newCards.length)];
+            System.arraycopy(cards, newBase - base, newArray, 0, numCards - newBase);
+            cards = newArray;
+            base = newBase;
+        }
+        System.arraycopy(newCards, 0, cards, numCards - base, newCards.length);
+        for (byte card : newCards) {
+            cardCounts[card]++;
+        }
+        markDirty(numCards, numCards + newCards.length);
+        numCards += newCards.length;
+    }
+
+    // Replaces the cards left with the given cards, already shuffled
+    void replace(byte[] cardsLeft) {
+        cards = cardsLeft;
+        base = 0;
+        numCards = cardsLeft.length;
+        nextCard = 0;
+        lazyShuffleEnd = 0;
+        markDirty(0, numCards);
+    }
+
+    void shuffleOnDraw() {
+        lazyShuffleEnd = numCards;
+        dirty = true;
+    }
+
+    byte[] draw(int count) {
+        int from = nextCard;
+        int to = from + Math.max(Math.min(count, getNumCardsLeft()), 0);
+        if (from < lazyShuffleEnd) {
+            // Same as ShoeService.drawCards: one Fisher-Yates step per card drawn
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int end = lazyShuffleEnd;
+            for (int position = from; position < Math.min(to, end); position++) {
+                int otherPosition = position + random.nextInt(end - position);
+                byte card = cards[position - base];
+                cards[position - base] = cards[otherPosition - base];
+                cards[otherPosition - base] = card;
+                markDirty(position, position + 1);
+                markDirty(otherPosition, otherPosition + 1);
+            }
+            lazyShuffleEnd = to < end ? end : 0;
+        }
+        byte[] drawn = Arrays.copyOfRange(cards, from - base, to - base);
+        for (byte card : drawn) {
+            cardCounts[card]--;
+        }
+        nextCard = to;
+        dirty = true;
+        return drawn;
+    }
+
+    Shoe toShoe(Game game) {
+        Shoe shoe = new Shoe();
+        shoe.setId(id);
+        shoe.setGame(game);
+        shoe.setCardsLeft(getCardsLeft());
+        shoe.setCardCounts(getCardCounts());
+        shoe.setShuffleStrategy(shuffleStrategy);
+        return shoe;
+    }
+
+    GameSnapshot.ShoeSnapshot takeSnapshot() {
+        if (!dirty) {
+            return null;
+        }
+        Map<Integer, byte[]> chunks = new HashMap<>();
+        int firstChunk = Math.max(ShoeChunk.chunkIndexOf(dirtyFrom), ShoeChunk.chunkIndexOf(nextCard));
+        for (int chunkIndex = firstChunk; dirtyFrom < dirtyTo && chunkIndex * ShoeChunk.SIZE < dirtyTo; chunkIndex++) {
+            int from = chunkIndex * ShoeChunk.SIZE;
+            int to = Math.min(from + ShoeChunk.SIZE, numCards);
+            if (from < to) {
+                chunks.put(chunkIndex, Arrays.copyOfRange(cards, from - base, to - base));
+            }
+        }
+        GameSnapshot.ShoeSnapshot snapshot = new GameSnapshot.ShoeSnapshot(id, numCards, nextCard, lazyShuffleEnd,
+                cardCounts.clone(), shuffleStrategy, chunks);
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+        dirty = false;
+        return snapshot;
+    }
+
+    // Called when a snapshot could not be saved, so that its changes are saved with the next one
+    void restoreSnapshot(GameSnapshot.ShoeSnapshot snapshot) {
+        for (int chunkIndex : snapshot.getChunks().keySet()) {
+            markDirty(chunkIndex * ShoeChunk.SIZE, Math.min((chunkIndex + 1) * ShoeChunk.SIZE, numCards));
+        }
+        dirty = true;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    private void markDirty(int from, int to) {
+        dirtyFrom = Math.min(dirtyFrom, from);
+        dirtyTo = Math.max(dirtyTo, to);
+        dirty = true;
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.clechasseur.deckr.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+
+import java.util.Objects;
+
+// Change made to a game. Only says what was done; clients fetch the parts of the game they need afterwards.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameEvent {
+    private GameEventType type;
+    private Long playerId;
+    private String name;
+    // Number of decks added, of cards dealt to a player or of cards dealt to each player
+    private Integer count;
+    private ShuffleStrategy strategy;
+
+    public GameEvent() {
+    }
+
+    public GameEvent(GameEventType type, Long playerId, String name, Integer count, ShuffleStrategy strategy) {
+        this.type = type;
+        this.playerId = playerId;
+        this.name = name;
+        this.count = count;
+        this.strategy = strategy;
+    }
+
+    public static GameEvent shoeCreated() {
+        return new GameEvent(GameEventType.ShoeCreated, null, null, null, null);
+    }
+
+    public static GameEvent decksAdded(int numDecks) {
+        return new GameEvent(GameEventType.DecksAdded, null, null, numDecks, null);
+    }
+
+    public static GameEvent shuffled(ShuffleStrategy strategy) {
+        return new GameEvent(GameEventType.Shuffled, null, null, null, strategy);
+    }
+
+    public static GameEvent playerJoined(Long playerId, String name) {
+        return new GameEvent(GameEventType.PlayerJoined, playerId, name, null, null);
+    }
+
+    public static GameEvent playerLeft(Long playerId) {
+        return new GameEvent(GameEventType.PlayerLeft, playerId, null, null, null);
+    }
+
+    public static GameEvent cardsDealt(Long playerId, int numCards) {
+        return new GameEvent(GameEventType.CardsDealt, playerId, null, numCards, null);
+    }
+
+    public static GameEvent roundDealt(int cardsEach) {
+        return new GameEvent(GameEventType.RoundDealt, null, null, cardsEach, null);
+    }
+
+    public static GameEvent gameDeleted() {
+        return new GameEvent(GameEventType.GameDeleted, null, null, null, null);
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    public void setType(GameEventType type) {
+        this.type = type;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(Long playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public ShuffleStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(ShuffleStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GameEvent gameEvent = (GameEvent) o;
+        return type == gameEvent.type && Objects.equals(playerId, gameEvent.playerId)
+                && Objects.equals(name, gameEvent.name) && Objects.equals(count, gameEvent.count)
+                && strategy == gameEvent.strategy;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, playerId, name, count, strategy);
+    }
+
+    @Override
+    public String toString() {
+        return "GameEvent{" +
+                "type=" + type +
+                ", playerId=" + playerId +
+                ", name='" + name + '\'' +
+                ", count=" + count +
+                ", strategy=" + strategy +
+                '}';
+    }
+}
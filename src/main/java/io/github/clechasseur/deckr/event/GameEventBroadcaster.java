@@ -0,0 +1,175 @@
+package io.github.clechasseur.deckr.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Pushes game events to the clients subscribed to them as Server-Sent Events. Each event is serialized once for all
+// subscribers, then queued for each of them and sent by a separate pool of threads, so that mutations never wait
+// on clients. A subscriber whose queue fills up because it doesn't read fast enough is disconnected; it can
+// reconnect and reload the game to catch up.
+@Component
+public class GameEventBroadcaster {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameEventBroadcaster.class);
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final ExecutorService sendExecutor;
+
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    public GameEventBroadcaster(ObjectMapper objectMapper,
+                                @Value("${deckr.events.buffer-size:256}") int bufferSize,
+                                @Value("${deckr.events.timeout:30m}") Duration timeout,
+                                @Value("${deckr.events.send-threads:4}") int sendThreads) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads);
+    }
+
+    public SseEmitter subscribe(Long gameId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(gameId, emitter, bufferSize);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> {
+            remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(ex -> remove(subscriber));
+        subscribers.computeIfAbsent(gameId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount(Long gameId) {
+        Set<Subscriber> gameSubscribers = subscribers.get(gameId);
+        return gameSubscribers != null ? gameSubscribers.size() : 0;
+    }
+
+    // Must be called once the change has been committed. The game ID is only looked up if someone is subscribed.
+    public void publish(Supplier<Long> gameId, GameEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Long id = gameId.get();
+        boolean last = event.getType() == GameEventType.GameDeleted;
+        Set<Subscriber> gameSubscribers = last ? subscribers.remove(id) : subscribers.get(id);
+        if (gameSubscribers == null || gameSubscribers.isEmpty()) {
+            return;
+        }
+
+        Message message = new Message(event.getType().name(), serialize(event), last);
+        for (Subscriber subscriber : gameSubscribers) {
+            if (subscriber.queue.offer(message)) {
+                schedule(subscriber);
+            } else {
+                LOGGER.debug("Disconnecting slow subscriber of game {}", id);
+                remove(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        sendExecutor.shutdown();
+        if (!sendExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+            LOGGER.warn("Timed out waiting for pending game events");
+        }
+        subscribers.values().forEach(gameSubscribers -> gameSubscribers.forEach(
+                subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private String serialize(GameEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Each subscriber's queue is drained by at most one thread at a time, so its events are sent in order
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            sendExecutor.execute(() -> send(subscriber));
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            Message message;
+            while ((message = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .name(message.name)
+                        .data(message.data, MediaType.APPLICATION_JSON));
+                if (message.last) {
+                    subscriber.emitter.complete();
+                }
+            }
+        } catch (IOException | IllegalStateException ex) {
+            // Client went away, or its stream was already completed
+            remove(subscriber);
+            subscriber.queue.clear();
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.gameId, (id, gameSubscribers) -> {
+            gameSubscribers.remove(subscriber);
+            return !gameSubscribers.isEmpty() ? gameSubscribers : null;
+        });
+    }
+
+    private static final class Subscriber {
+        final Long gameId;
+        final SseEmitter emitter;
+        final BlockingQueue<Message> queue;
+        final AtomicBoolean sending = new AtomicBoolean();
+
+        Subscriber(Long gameId, SseEmitter emitter, int bufferSize) {
+            this.gameId = gameId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private static final class Message {
+        final String name;
+        final String data;
+        // Stream is closed once this message is sent
+        final boolean last;
+
+        Message(String name, String data, boolean last) {
+            this.name = name;
+            this.data = data;
+            this.last = last;
+        }
+    }
+}
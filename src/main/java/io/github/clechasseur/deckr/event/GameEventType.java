@@ -0,0 +1,12 @@
+package io.github.clechasseur.deckr.event;
+
+public enum GameEventType {
+    ShoeCreated,
+    DecksAdded,
+    Shuffled,
+    PlayerJoined,
+    PlayerLeft,
+    CardsDealt,
+    RoundDealt,
+    GameDeleted
+}
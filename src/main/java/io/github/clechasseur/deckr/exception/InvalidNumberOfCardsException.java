@@ -0,0 +1,7 @@
+package io.github.clechasseur.deckr.exception;
+
+public class InvalidNumberOfCardsException extends RuntimeException {
+    public InvalidNumberOfCardsException(int numCards) {
+        super("Invalid number of cards: " + numCards);
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.clechasseur.deckr.exception;
+
+public class InvalidNumberOfDecksException extends RuntimeException {
+    public InvalidNumberOfDecksException(int numDecks) {
+        super("Invalid number of decks: " + numDecks);
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.clechasseur.deckr.exception;
+
+import java.util.Collection;
+
+public class UnknownFieldsException extends RuntimeException {
+    public UnknownFieldsException(Collection<String> fields) {
+        super("Unknown fields: " + String.join(",", fields));
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.clechasseur.deckr.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.clechasseur.deckr.model.CardAndSuit;
+import org.springframework.hateoas.Link;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Writes lists of cards in the same HAL format as a CollectionModel<EntityModel<CardAndSuit>>, but card by card
+// as they are produced, so that memory use does not depend on the number of cards.
+@Component
+public class CardStreamWriter {
+    private final JsonFactory jsonFactory;
+
+    public CardStreamWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public StreamingResponseBody write(Stream<CardAndSuit> cards, List<Link> links) {
+        return out -> {
+            try (Stream<CardAndSuit> cardStream = cards;
+                 JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                gen.writeStartObject();
+
+                Iterator<CardAndSuit> it = cardStream.iterator();
+                if (it.hasNext()) {
+                    gen.writeObjectFieldStart("_embedded");
+                    gen.writeArrayFieldStart("cardAndSuitList");
+                    while (it.hasNext()) {
+                        CardAndSuit card = it.next();
+                        gen.writeStartObject();
+                        gen.writeStringField("card", card.getCard().name());
+                        gen.writeStringField("suit", card.getSuit().name());
+                        gen.writeEndObject();
+                    }
+                    gen.writeEndArray();
+                    gen.writeEndObject();
+                }
+
+                gen.writeObjectFieldStart("_links");
+                for (Link link : links) {
+                    gen.writeObjectFieldStart(link.getRel().value());
+                    gen.writeStringField("href", link.getHref());
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+
+                gen.writeEndObject();
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.clechasseur.deckr.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import io.github.clechasseur.deckr.util.CardUtils;
+
+import java.io.IOException;
+
+public class CardsDeserializer extends StdDeserializer<byte[]> {
+    public CardsDeserializer() {
+        super(byte[].class);
+    }
+
+    @Override
+    public byte[] deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return CardUtils.encode(p.getValueAsString());
+    }
+}
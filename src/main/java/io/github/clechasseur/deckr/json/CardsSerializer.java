@@ -0,0 +1,19 @@
+package io.github.clechasseur.deckr.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.github.clechasseur.deckr.util.CardUtils;
+
+import java.io.IOException;
+
+public class CardsSerializer extends StdSerializer<byte[]> {
+    public CardsSerializer() {
+        super(byte[].class);
+    }
+
+    @Override
+    public void serialize(byte[] value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeString(CardUtils.toString(value));
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.clechasseur.deckr.json;
+
+import com.fasterxml.jackson.annotation.ObjectIdGenerator;
+import com.fasterxml.jackson.annotation.ObjectIdResolver;
+import com.fasterxml.jackson.annotation.SimpleObjectIdResolver;
+import io.github.clechasseur.deckr.model.Game;
+
+// Players and shoes refer to their game by ID only; when the game itself is not part of the document,
+// this resolves such a reference to a game that only has its ID set.
+public class GameIdResolver extends SimpleObjectIdResolver {
+    @Override
+    public Object resolveId(ObjectIdGenerator.IdKey id) {
+        Object game = super.resolveId(id);
+        if (game == null && id.key instanceof Number) {
+            Game reference = new Game();
+            reference.setId(((Number) id.key).longValue());
+            bindItem(id, reference);
+            game = reference;
+        }
+        return game;
+    }
+
+    @Override
+    public ObjectIdResolver newForDeserialization(Object context) {
+        return new GameIdResolver();
+    }
+}
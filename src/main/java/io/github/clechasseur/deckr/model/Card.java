@@ -15,6 +15,8 @@ public enum Card {
     Queen(12),
     King(13);
 
+    private static final Card[] VALUES = values();
+
     private final int value;
 
     Card(int value) {
@@ -31,11 +33,14 @@ public enum Card {
     }
 
     public static Card fromValue(int value) {
-        for (Card c : values()) {
-            if (c.getValue() == value) {
-                return c;
-            }
-        }
-        return null;
+        return value >= 1 && value <= VALUES.length ? VALUES[value - 1] : null;
+    }
+
+    public static Card fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public static int count() {
+        return VALUES.length;
     }
 }
@@ -1,8 +1,20 @@
 package io.github.clechasseur.deckr.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Objects;
 
 public final class CardAndSuit {
+    public static final int DISTINCT_CARDS = Suit.count() * Card.count();
+
+    private static final CardAndSuit[] ALL = new CardAndSuit[DISTINCT_CARDS];
+
+    static {
+        for (int i = 0; i < DISTINCT_CARDS; i++) {
+            ALL[i] = new CardAndSuit(Card.fromOrdinal(i % Card.count()), Suit.fromOrdinal(i / Card.count()));
+        }
+    }
+
     private final Card card;
     private final Suit suit;
 
@@ -11,11 +23,48 @@ public final class CardAndSuit {
         this.suit = Objects.requireNonNull(suit);
     }
 
+    public static CardAndSuit of(Card card, Suit suit) {
+        return ALL[indexOf(Objects.requireNonNull(card), Objects.requireNonNull(suit))];
+    }
+
+    public static CardAndSuit fromIndex(int index) {
+        if (index < 0 || index >= DISTINCT_CARDS) {
+            throw new IllegalArgumentException("Invalid card index: " + index);
+        }
+        return ALL[index];
+    }
+
     public static CardAndSuit parse(String from) {
         String stringRepr = Objects.requireNonNull(from);
-        Suit suit = Suit.fromSymbol(stringRepr.substring(0, 1));
-        Card card = Card.fromValue(Integer.parseInt(stringRepr.substring(1)));
-        return new CardAndSuit(card, suit);
+        return parse(stringRepr, 0, stringRepr.length());
+    }
+
+    public static CardAndSuit parse(CharSequence from, int start, int end) {
+        return ALL[parseIndex(from, start, end)];
+    }
+
+    public static int parseIndex(CharSequence from, int start, int end) {
+        if (end - start < 2) {
+            throw new IllegalArgumentException("Invalid card: " + from.subSequence(start, end));
+        }
+        Suit suit = Suit.fromSymbol(from.charAt(start));
+        int value = 0;
+        for (int i = start + 1; i < end; i++) {
+            int digit = Character.digit(from.charAt(i), 10);
+            if (digit < 0) {
+                throw new NumberFormatException("Invalid card value: " + from.subSequence(start + 1, end));
+            }
+            value = value * 10 + digit;
+        }
+        Card card = Card.fromValue(value);
+        if (suit == null || card == null) {
+            throw new IllegalArgumentException("Invalid card: " + from.subSequence(start, end));
+        }
+        return indexOf(card, suit);
+    }
+
+    private static int indexOf(Card card, Suit suit) {
+        return suit.ordinal() * Card.count() + card.ordinal();
     }
 
     public Card getCard() {
@@ -26,6 +75,11 @@ public final class CardAndSuit {
         return suit;
     }
 
+    @JsonIgnore
+    public int getIndex() {
+        return indexOf(card, suit);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -36,7 +90,7 @@ public final class CardAndSuit {
 
     @Override
     public int hashCode() {
-        return Objects.hash(card, suit);
+        return getIndex();
     }
 
     @Override
@@ -0,0 +1,53 @@
+package io.github.clechasseur.deckr.model;
+
+import java.util.Objects;
+
+public class CardCount {
+    private CardAndSuit card;
+    private int count;
+
+    public CardCount() {
+    }
+
+    public CardCount(CardAndSuit card, int count) {
+        this.card = card;
+        this.count = count;
+    }
+
+    public CardAndSuit getCard() {
+        return card;
+    }
+
+    public void setCard(CardAndSuit card) {
+        this.card = card;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CardCount cardCount = (CardCount) o;
+        return count == cardCount.count && Objects.equals(card, cardCount.card);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(card, count);
+    }
+
+    @Override
+    public String toString() {
+        return "CardCount{" +
+                "card=" + card +
+                ", count=" + count +
+                '}';
+    }
+}
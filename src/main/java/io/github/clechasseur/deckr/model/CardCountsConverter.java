@@ -0,0 +1,28 @@
+package io.github.clechasseur.deckr.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.ByteBuffer;
+
+@Converter
+public class CardCountsConverter implements AttributeConverter<int[], byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(int[] attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(attribute.length * Integer.BYTES);
+        buffer.asIntBuffer().put(attribute);
+        return buffer.array();
+    }
+
+    @Override
+    public int[] convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        int[] attribute = new int[dbData.length / Integer.BYTES];
+        ByteBuffer.wrap(dbData).asIntBuffer().get(attribute);
+        return attribute;
+    }
+}
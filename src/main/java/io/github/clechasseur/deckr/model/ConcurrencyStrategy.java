@@ -0,0 +1,7 @@
+package io.github.clechasseur.deckr.model;
+
+public enum ConcurrencyStrategy {
+    Isolation,
+    Optimistic,
+    Pessimistic
+}
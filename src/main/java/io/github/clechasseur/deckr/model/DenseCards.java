@@ -0,0 +1,27 @@
+package io.github.clechasseur.deckr.model;
+
+import java.util.stream.Stream;
+
+// Cards as an array of short codes (like "S13" or "H1"), the same notation used for shoes and hands
+public class DenseCards {
+    private String[] cards;
+
+    public DenseCards() {
+    }
+
+    public DenseCards(String[] cards) {
+        this.cards = cards;
+    }
+
+    public static DenseCards of(Stream<CardAndSuit> cards) {
+        return new DenseCards(cards.map(CardAndSuit::toString).toArray(String[]::new));
+    }
+
+    public String[] getCards() {
+        return cards;
+    }
+
+    public void setCards(String[] cards) {
+        this.cards = cards;
+    }
+}
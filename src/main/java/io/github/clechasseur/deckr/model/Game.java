@@ -1,7 +1,9 @@
 package io.github.clechasseur.deckr.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import io.github.clechasseur.deckr.json.GameIdResolver;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -16,7 +18,8 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Game.class)
+@JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Game.class,
+        resolver = GameIdResolver.class)
 public class Game {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,12 +29,20 @@ public class Game {
     @Column
     private String name;
 
+    // Hibernate can't load this side of the association lazily, but the shoe's row is small (its cards are in chunks)
     @OneToOne(fetch = FetchType.EAGER, mappedBy = "game", cascade = CascadeType.ALL)
     private Shoe shoe;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "game", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "game", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Player> players;
 
+    // Incremented when something in the game changes that doesn't update the version of its shoe or of one of its
+    // players; see GameService.getRevision. Only ever updated through GameRepository, so that saving a stale copy
+    // of the game can't move it back.
+    @Column(nullable = false, updatable = false)
+    @JsonIgnore
+    private long revision;
+
     public Long getId() {
         return id;
     }
@@ -64,6 +75,14 @@ public class Game {
         this.players = players;
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,168 @@
+package io.github.clechasseur.deckr.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventType;
+import io.github.clechasseur.deckr.json.CardsSerializer;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+// Entry in a game's history. Appended in the same transaction as the change it records and never modified; entries
+// are kept after the game is deleted.
+@Entity
+@Table(name = "game_event")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameEventRecord {
+    // Ids are taken from a sequence, 50 at a time, so that records can be inserted in batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_event_seq")
+    @SequenceGenerator(name = "game_event_seq", allocationSize = 50)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long gameId;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private GameEventType type;
+
+    @Column
+    private Long playerId;
+
+    @Column
+    private Integer count;
+
+    @Column(length = 20)
+    @Enumerated(EnumType.STRING)
+    private ShuffleStrategy strategy;
+
+    // Cards dealt, for CardsDealt events
+    @Column(length = 10000)
+    @JsonSerialize(using = CardsSerializer.class)
+    private byte[] cards;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public GameEventRecord() {
+    }
+
+    public GameEventRecord(Long gameId, GameEvent event, byte[] cards, Instant createdAt) {
+        this.gameId = gameId;
+        this.type = event.getType();
+        this.playerId = event.getPlayerId();
+        this.count = event.getCount();
+        this.strategy = event.getStrategy();
+        this.cards = cards;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    public void setType(GameEventType type) {
+        this.type = type;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(Long playerId) {
+        this.playerId = playerId;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public ShuffleStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(ShuffleStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public byte[] getCards() {
+        return cards;
+    }
+
+    public void setCards(byte[] cards) {
+        this.cards = cards;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GameEventRecord that = (GameEventRecord) o;
+        return Objects.equals(id, that.id) && Objects.equals(gameId, that.gameId) && type == that.type
+                && Objects.equals(playerId, that.playerId) && Objects.equals(count, that.count)
+                && strategy == that.strategy && Arrays.equals(cards, that.cards)
+                && Objects.equals(createdAt, that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(id, gameId, type, playerId, count, strategy, createdAt);
+        result = 31 * result + Arrays.hashCode(cards);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "GameEventRecord{" +
+                "id=" + id +
+                ", gameId=" + gameId +
+                ", type=" + type +
+                ", playerId=" + playerId +
+                ", count=" + count +
+                ", strategy=" + strategy +
+                ", cards=" + Arrays.toString(cards) +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.clechasseur.deckr.model;
+
+import java.util.Objects;
+
+public class GameSummary {
+    private Long id;
+    private String name;
+    private int playerCount;
+    private Integer shoeCardCount;
+
+    public GameSummary() {
+    }
+
+    // Used by GameRepository.findSummaryById; shoeCardCount is null if the game has no shoe
+    public GameSummary(Long id, String name, Long playerCount, Integer shoeCardCount) {
+        this.id = id;
+        this.name = name;
+        this.playerCount = playerCount.intValue();
+        this.shoeCardCount = shoeCardCount != null ? Math.max(shoeCardCount, 0) : null;
+    }
+
+    public static GameSummary of(Game game) {
+        return new GameSummary(game.getId(), game.getName(),
+                (long) (game.getPlayers() != null ? game.getPlayers().size() : 0),
+                game.getShoe() != null ? game.getShoe().getNumCardsLeft() : null);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public void setPlayerCount(int playerCount) {
+        this.playerCount = playerCount;
+    }
+
+    public Integer getShoeCardCount() {
+        return shoeCardCount;
+    }
+
+    public void setShoeCardCount(Integer shoeCardCount) {
+        this.shoeCardCount = shoeCardCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GameSummary that = (GameSummary) o;
+        return playerCount == that.playerCount && Objects.equals(id, that.id) && Objects.equals(name, that.name) &&
+                Objects.equals(shoeCardCount, that.shoeCardCount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, playerCount, shoeCardCount);
+    }
+
+    @Override
+    public String toString() {
+        return "GameSummary{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", playerCount=" + playerCount +
+                ", shoeCardCount=" + shoeCardCount +
+                '}';
+    }
+}
@@ -1,15 +1,25 @@
 package io.github.clechasseur.deckr.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.clechasseur.deckr.json.CardsDeserializer;
+import io.github.clechasseur.deckr.json.CardsSerializer;
+import io.github.clechasseur.deckr.util.CardUtils;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Version;
+import java.util.Arrays;
 import java.util.Objects;
 
 @Entity
@@ -20,15 +30,31 @@ public class Player {
     @Column(nullable = false)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "game_id", nullable = false)
+    @JsonIdentityReference(alwaysAsId = true)
     private Game game;
 
     @Column
     private String name;
 
-    @Column
-    private String hand;
+    @Column(length = 10000)
+    @JsonSerialize(using = CardsSerializer.class)
+    @JsonDeserialize(using = CardsDeserializer.class)
+    private byte[] hand;
+
+    @Column(nullable = false)
+    @JsonIgnore
+    private int handValue;
+
+    @Column(nullable = false)
+    @JsonIgnore
+    private int cardCount;
+
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private long version;
 
     public Long getId() {
         return id;
@@ -54,26 +80,50 @@ public class Player {
         this.name = name;
     }
 
-    public String getHand() {
+    public byte[] getHand() {
         return hand;
     }
 
-    public void setHand(String hand) {
+    public void setHand(byte[] hand) {
         this.hand = hand;
     }
 
+    public int getHandValue() {
+        return handValue;
+    }
+
+    public void setHandValue(int handValue) {
+        this.handValue = handValue;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public void setCardCount(int cardCount) {
+        this.cardCount = cardCount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Player player = (Player) o;
         return id.equals(player.id) && game.getId().equals(player.game.getId()) && Objects.equals(name, player.name) &&
-                Objects.equals(hand, player.hand);
+                Arrays.equals(hand, player.hand);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, game.getId(), name, hand);
+        return Objects.hash(id, game.getId(), name, Arrays.hashCode(hand));
     }
 
     @Override
@@ -82,7 +132,7 @@ public class Player {
                 "id=" + id +
                 ", gameId=" + game.getId() +
                 ", name='" + name + '\'' +
-                ", hand='" + hand + '\'' +
+                ", hand='" + CardUtils.toString(hand) + '\'' +
                 '}';
     }
 }
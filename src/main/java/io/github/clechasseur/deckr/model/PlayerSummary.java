@@ -0,0 +1,93 @@
+package io.github.clechasseur.deckr.model;
+
+import java.util.Objects;
+
+public class PlayerSummary {
+    private Long id;
+    private Long gameId;
+    private String name;
+    private int cardCount;
+    private int handValue;
+
+    public PlayerSummary() {
+    }
+
+    // Used by PlayerRepository.findSummaryById
+    public PlayerSummary(Long id, Long gameId, String name, int cardCount, int handValue) {
+        this.id = id;
+        this.gameId = gameId;
+        this.name = name;
+        this.cardCount = cardCount;
+        this.handValue = handValue;
+    }
+
+    public static PlayerSummary of(Player player) {
+        return new PlayerSummary(player.getId(), player.getGame().getId(), player.getName(), player.getCardCount(),
+                player.getHandValue());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public void setCardCount(int cardCount) {
+        this.cardCount = cardCount;
+    }
+
+    public int getHandValue() {
+        return handValue;
+    }
+
+    public void setHandValue(int handValue) {
+        this.handValue = handValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PlayerSummary that = (PlayerSummary) o;
+        return cardCount == that.cardCount && handValue == that.handValue && Objects.equals(id, that.id) &&
+                Objects.equals(gameId, that.gameId) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, gameId, name, cardCount, handValue);
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerSummary{" +
+                "id=" + id +
+                ", gameId=" + gameId +
+                ", name='" + name + '\'' +
+                ", cardCount=" + cardCount +
+                ", handValue=" + handValue +
+                '}';
+    }
+}
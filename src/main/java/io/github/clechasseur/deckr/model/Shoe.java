@@ -1,18 +1,39 @@
 package io.github.clechasseur.deckr.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.clechasseur.deckr.json.CardsDeserializer;
+import io.github.clechasseur.deckr.json.CardsSerializer;
+import io.github.clechasseur.deckr.util.CardUtils;
+import org.hibernate.annotations.DynamicUpdate;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
+import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.OrderBy;
+import javax.persistence.Version;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 @Entity
+@DynamicUpdate
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Shoe.class)
 public class Shoe {
     @Id
@@ -20,12 +41,40 @@ public class Shoe {
     @Column(nullable = false)
     private Long id;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "game_id", nullable = false)
+    @JsonIdentityReference(alwaysAsId = true)
     private Game game;
 
+    // Cards are kept in shuffled order, split in chunks; those before nextCard have already been dealt.
+    @OneToMany(mappedBy = "shoe", cascade = CascadeType.REMOVE)
+    @OrderBy("chunkIndex")
+    private List<ShoeChunk> chunks = new ArrayList<>();
+
+    @Column(nullable = false)
+    private int numCards;
+
+    @Column(nullable = false)
+    private int nextCard;
+
+    // Cards between nextCard and this position have not been shuffled yet; they are picked at random when dealt.
+    @Column(nullable = false)
+    private int lazyShuffleEnd;
+
+    // Number of cards left in the shoe for each distinct card, indexed like CardAndSuit.getIndex().
     @Column
-    private String cards;
+    @Convert(converter = CardCountsConverter.class)
+    private int[] cardCounts;
+
+    // Strategy used when shuffling this shoe; if null, the deployment's default strategy is used.
+    @Column(length = 20)
+    @Enumerated(EnumType.STRING)
+    private ShuffleStrategy shuffleStrategy;
+
+    // Used when shoe mutations use the Optimistic concurrency strategy
+    @Version
+    @Column(nullable = false)
+    private long version;
 
     public Long getId() {
         return id;
@@ -43,12 +92,104 @@ public class Shoe {
         this.game = game;
     }
 
-    public String getCards() {
-        return cards;
+    @JsonIgnore
+    public List<ShoeChunk> getChunks() {
+        return chunks;
+    }
+
+    @JsonIgnore
+    public void setChunks(List<ShoeChunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    @JsonIgnore
+    public int getNumCards() {
+        return numCards;
+    }
+
+    @JsonIgnore
+    public void setNumCards(int numCards) {
+        this.numCards = numCards;
+    }
+
+    @JsonIgnore
+    public int getNextCard() {
+        return nextCard;
+    }
+
+    @JsonIgnore
+    public void setNextCard(int nextCard) {
+        this.nextCard = nextCard;
+    }
+
+    @JsonIgnore
+    public int getLazyShuffleEnd() {
+        return lazyShuffleEnd;
+    }
+
+    @JsonIgnore
+    public void setLazyShuffleEnd(int lazyShuffleEnd) {
+        this.lazyShuffleEnd = lazyShuffleEnd;
+    }
+
+    @JsonIgnore
+    public int[] getCardCounts() {
+        if (cardCounts != null) {
+            return cardCounts;
+        }
+        byte[] cardsLeft = getCardsLeft();
+        return CardUtils.countCards(cardsLeft, 0, cardsLeft.length);
+    }
+
+    @JsonIgnore
+    public void setCardCounts(int[] cardCounts) {
+        this.cardCounts = cardCounts;
+    }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public ShuffleStrategy getShuffleStrategy() {
+        return shuffleStrategy;
+    }
+
+    public void setShuffleStrategy(ShuffleStrategy shuffleStrategy) {
+        this.shuffleStrategy = shuffleStrategy;
+    }
+
+    @JsonProperty("cards")
+    @JsonSerialize(using = CardsSerializer.class)
+    public byte[] getCardsLeft() {
+        byte[] cardsLeft = new byte[getNumCardsLeft()];
+        ShoeChunk.copyCards(chunks, nextCard, numCards, cardsLeft, 0);
+        return cardsLeft;
+    }
+
+    @JsonProperty("cards")
+    @JsonDeserialize(using = CardsDeserializer.class)
+    public void setCardsLeft(byte[] cardsLeft) {
+        List<ShoeChunk> newChunks = new ArrayList<>();
+        for (int from = 0; from < cardsLeft.length; from += ShoeChunk.SIZE) {
+            byte[] chunkCards = Arrays.copyOfRange(cardsLeft, from, Math.min(from + ShoeChunk.SIZE, cardsLeft.length));
+            newChunks.add(new ShoeChunk(this, ShoeChunk.chunkIndexOf(from), chunkCards));
+        }
+        this.chunks = newChunks;
+        this.numCards = cardsLeft.length;
+        this.nextCard = 0;
+        this.lazyShuffleEnd = 0;
+        this.cardCounts = null;
     }
 
-    public void setCards(String cards) {
-        this.cards = cards;
+    @JsonIgnore
+    public int getNumCardsLeft() {
+        return Math.max(numCards - nextCard, 0);
     }
 
     @Override
@@ -56,12 +197,14 @@ public class Shoe {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Shoe shoe = (Shoe) o;
-        return id.equals(shoe.id) && game.getId().equals(shoe.game.getId()) && Objects.equals(cards, shoe.cards);
+        return numCards == shoe.numCards && nextCard == shoe.nextCard && lazyShuffleEnd == shoe.lazyShuffleEnd &&
+                id.equals(shoe.id) &&
+                game.getId().equals(shoe.game.getId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, game.getId(), cards);
+        return Objects.hash(id, game.getId(), numCards, nextCard, lazyShuffleEnd);
     }
 
     @Override
@@ -69,7 +212,10 @@ public class Shoe {
         return "Shoe{" +
                 "id=" + id +
                 ", gameId=" + game.getId() +
-                ", cards='" + cards + '\'' +
+                ", numCards=" + numCards +
+                ", nextCard=" + nextCard +
+                ", lazyShuffleEnd=" + lazyShuffleEnd +
+                ", shuffleStrategy=" + shuffleStrategy +
                 '}';
     }
 }
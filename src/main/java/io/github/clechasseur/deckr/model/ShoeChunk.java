@@ -0,0 +1,140 @@
+package io.github.clechasseur.deckr.model;
+
+import io.github.clechasseur.deckr.util.CardUtils;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Transient;
+import java.util.Arrays;
+import java.util.Objects;
+
+// A fixed-size slice of the cards in a shoe. Chunk n holds the cards at positions [n * SIZE, (n + 1) * SIZE);
+// only the last chunk of a shoe can be shorter.
+@Entity
+@IdClass(ShoeChunkId.class)
+public class ShoeChunk implements Persistable<ShoeChunkId> {
+    public static final int SIZE = 512;
+
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "shoe_id", nullable = false)
+    private Shoe shoe;
+
+    @Id
+    @Column(nullable = false)
+    private int chunkIndex;
+
+    @Column(length = SIZE)
+    private byte[] cards;
+
+    // Chunk ids are assigned, so we need to tell Spring Data when to persist instead of merge
+    @Transient
+    private boolean isNew = true;
+
+    public ShoeChunk() {
+    }
+
+    public ShoeChunk(Shoe shoe, int chunkIndex, byte[] cards) {
+        this.shoe = shoe;
+        this.chunkIndex = chunkIndex;
+        this.cards = cards;
+    }
+
+    public Shoe getShoe() {
+        return shoe;
+    }
+
+    public void setShoe(Shoe shoe) {
+        this.shoe = shoe;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public byte[] getCards() {
+        return cards;
+    }
+
+    public void setCards(byte[] cards) {
+        this.cards = cards;
+    }
+
+    public int getStartPosition() {
+        return chunkIndex * SIZE;
+    }
+
+    public int getEndPosition() {
+        return getStartPosition() + cards.length;
+    }
+
+    public boolean isFull() {
+        return cards.length == SIZE;
+    }
+
+    @Override
+    public ShoeChunkId getId() {
+        return new ShoeChunkId(shoe != null ? shoe.getId() : null, chunkIndex);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    public static int chunkIndexOf(int position) {
+        return position / SIZE;
+    }
+
+    // Copies cards at positions [from, to) from the given chunks into dest, starting at destPos.
+    // Chunks that do not overlap the range are skipped.
+    public static void copyCards(Iterable<ShoeChunk> chunks, int from, int to, byte[] dest, int destPos) {
+        for (ShoeChunk chunk : chunks) {
+            int start = Math.max(from, chunk.getStartPosition());
+            int end = Math.min(to, chunk.getEndPosition());
+            if (start < end) {
+                System.arraycopy(chunk.cards, start - chunk.getStartPosition(), dest, destPos + start - from, end - start);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShoeChunk shoeChunk = (ShoeChunk) o;
+        return Objects.equals(getId(), shoeChunk.getId()) && Arrays.equals(cards, shoeChunk.cards);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), Arrays.hashCode(cards));
+    }
+
+    @Override
+    public String toString() {
+        return "ShoeChunk{" +
+                "shoeId=" + (shoe != null ? shoe.getId() : null) +
+                ", chunkIndex=" + chunkIndex +
+                ", cards='" + CardUtils.toString(cards) + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.clechasseur.deckr.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class ShoeChunkId implements Serializable {
+    private Long shoe;
+    private int chunkIndex;
+
+    public ShoeChunkId() {
+    }
+
+    public ShoeChunkId(Long shoe, int chunkIndex) {
+        this.shoe = shoe;
+        this.chunkIndex = chunkIndex;
+    }
+
+    public Long getShoe() {
+        return shoe;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShoeChunkId that = (ShoeChunkId) o;
+        return chunkIndex == that.chunkIndex && Objects.equals(shoe, that.shoe);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shoe, chunkIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "ShoeChunkId{" +
+                "shoe=" + shoe +
+                ", chunkIndex=" + chunkIndex +
+                '}';
+    }
+}
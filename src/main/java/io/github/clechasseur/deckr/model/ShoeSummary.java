@@ -0,0 +1,82 @@
+package io.github.clechasseur.deckr.model;
+
+import java.util.Objects;
+
+public class ShoeSummary {
+    private Long id;
+    private Long gameId;
+    private int cardCount;
+    private ShuffleStrategy shuffleStrategy;
+
+    public ShoeSummary() {
+    }
+
+    public ShoeSummary(Long id, Long gameId, int cardCount, ShuffleStrategy shuffleStrategy) {
+        this.id = id;
+        this.gameId = gameId;
+        this.cardCount = cardCount;
+        this.shuffleStrategy = shuffleStrategy;
+    }
+
+    // Does not read the shoe's cards
+    public static ShoeSummary of(Shoe shoe) {
+        return new ShoeSummary(shoe.getId(), shoe.getGame().getId(), shoe.getNumCardsLeft(),
+                shoe.getShuffleStrategy());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public void setCardCount(int cardCount) {
+        this.cardCount = cardCount;
+    }
+
+    public ShuffleStrategy getShuffleStrategy() {
+        return shuffleStrategy;
+    }
+
+    public void setShuffleStrategy(ShuffleStrategy shuffleStrategy) {
+        this.shuffleStrategy = shuffleStrategy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShoeSummary that = (ShoeSummary) o;
+        return cardCount == that.cardCount && Objects.equals(id, that.id) && Objects.equals(gameId, that.gameId) &&
+                shuffleStrategy == that.shuffleStrategy;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, gameId, cardCount, shuffleStrategy);
+    }
+
+    @Override
+    public String toString() {
+        return "ShoeSummary{" +
+                "id=" + id +
+                ", gameId=" + gameId +
+                ", cardCount=" + cardCount +
+                ", shuffleStrategy=" + shuffleStrategy +
+                '}';
+    }
+}
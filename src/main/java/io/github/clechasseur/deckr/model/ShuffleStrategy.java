@@ -0,0 +1,9 @@
+package io.github.clechasseur.deckr.model;
+
+public enum ShuffleStrategy {
+    InPlace,
+    Splittable,
+    Secure,
+    Parallel,
+    OnDraw
+}
@@ -6,6 +6,8 @@ public enum Suit {
     Clubs("C"),
     Diamonds("D");
 
+    private static final Suit[] VALUES = values();
+
     private final String symbol;
 
     Suit(String symbol) {
@@ -22,11 +24,29 @@ public enum Suit {
     }
 
     public static Suit fromSymbol(String symbol) {
-        for (Suit s : values()) {
-            if (s.getSymbol().equals(symbol)) {
-                return s;
-            }
+        return symbol != null && symbol.length() == 1 ? fromSymbol(symbol.charAt(0)) : null;
+    }
+
+    public static Suit fromSymbol(char symbol) {
+        switch (symbol) {
+            case 'H':
+                return Hearts;
+            case 'S':
+                return Spades;
+            case 'C':
+                return Clubs;
+            case 'D':
+                return Diamonds;
+            default:
+                return null;
         }
-        return null;
+    }
+
+    public static Suit fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public static int count() {
+        return VALUES.length;
     }
 }
@@ -0,0 +1,11 @@
+package io.github.clechasseur.deckr.repository;
+
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface GameEventRecordRepository extends JpaRepository<GameEventRecord, Long> {
+    List<GameEventRecord> findByGameIdOrderByCreatedAtAscIdAsc(Long gameId, Pageable pageable);
+}
@@ -1,7 +1,40 @@
 package io.github.clechasseur.deckr.repository;
 
 import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameSummary;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface GameRepository extends JpaRepository<Game, Long> {
+    @EntityGraph(attributePaths = "players")
+    Optional<Game> findWithPlayersById(Long id);
+
+    @Query("select new io.github.clechasseur.deckr.model.GameSummary(g.id, g.name, count(p), s.numCards - s.nextCard) " +
+            "from Game g left join g.shoe s left join g.players p where g.id = :id " +
+            "group by g.id, g.name, s.numCards, s.nextCard")
+    Optional<GameSummary> findSummaryById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Game g where g.id = :id")
+    int deleteGameById(@Param("id") Long id);
+
+    // The game's own revision plus the versions of its shoe and players, see GameService.getRevision
+    @Query("select g.revision + coalesce(s.version, 0L) + coalesce(sum(p.version), 0L) " +
+            "from Game g left join g.shoe s left join g.players p where g.id = :id " +
+            "group by g.id, g.revision, s.version")
+    Optional<Long> findRevisionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Game g set g.revision = g.revision + :increment where g.id = :id")
+    int incrementRevision(@Param("id") Long id, @Param("increment") long increment);
+
+    // Never moves the revision back, in case it was incremented by something else in the meantime
+    @Modifying
+    @Query("update Game g set g.revision = :revision where g.id = :id and g.revision < :revision")
+    int advanceRevision(@Param("id") Long id, @Param("revision") long revision);
 }
@@ -1,7 +1,37 @@
 package io.github.clechasseur.deckr.repository;
 
 import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.PlayerSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface PlayerRepository extends JpaRepository<Player, Long> {
+    Page<Player> findByGameIdOrderByHandValueDescNameAsc(Long gameId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"game", "game.shoe"})
+    Optional<Player> findWithGameAndShoeById(Long id);
+
+    @Query("select new io.github.clechasseur.deckr.model.PlayerSummary(p.id, p.game.id, p.name, p.cardCount, " +
+            "p.handValue) from Player p where p.id = :id")
+    Optional<PlayerSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("select p.game.id from Player p where p.id = :id")
+    Optional<Long> findGameIdById(@Param("id") Long id);
+
+    // Same as GameRepository.findRevisionById, for the player's game
+    @Query("select g.revision + coalesce(s.version, 0L) + coalesce(sum(p.version), 0L) " +
+            "from Player player join player.game g left join g.shoe s left join g.players p where player.id = :id " +
+            "group by g.id, g.revision, s.version")
+    Optional<Long> findGameRevisionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Player p where p.game.id = :gameId")
+    void deleteByGameId(@Param("gameId") Long gameId);
 }
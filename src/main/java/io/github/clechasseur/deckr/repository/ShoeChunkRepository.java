@@ -0,0 +1,25 @@
+package io.github.clechasseur.deckr.repository;
+
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.model.ShoeChunkId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ShoeChunkRepository extends JpaRepository<ShoeChunk, ShoeChunkId> {
+    List<ShoeChunk> findByShoeIdOrderByChunkIndex(Long shoeId);
+
+    List<ShoeChunk> findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(Long shoeId, int firstChunkIndex,
+                                                                      int lastChunkIndex);
+
+    void deleteByShoeIdAndChunkIndexLessThan(Long shoeId, int chunkIndex);
+
+    void deleteByShoeIdAndChunkIndexGreaterThanEqual(Long shoeId, int chunkIndex);
+
+    @Modifying
+    @Query("delete from ShoeChunk c where c.shoe.id in (select s.id from Shoe s where s.game.id = :gameId)")
+    void deleteByGameId(@Param("gameId") Long gameId);
+}
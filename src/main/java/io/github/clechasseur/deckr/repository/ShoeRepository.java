@@ -1,7 +1,50 @@
 package io.github.clechasseur.deckr.repository;
 
 import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
 
 public interface ShoeRepository extends JpaRepository<Shoe, Long> {
+    @Query("select s.game.id from Shoe s where s.id = :id")
+    Optional<Long> findGameIdById(@Param("id") Long id);
+
+    @Query("select s.id from Shoe s where s.game.id = :gameId")
+    Optional<Long> findIdByGameId(@Param("gameId") Long gameId);
+
+    @Query("select new io.github.clechasseur.deckr.model.ShoeSummary(s.id, s.game.id, s.numCards - s.nextCard, " +
+            "s.shuffleStrategy) from Shoe s where s.game.id = :gameId")
+    Optional<ShoeSummary> findSummaryByGameId(@Param("gameId") Long gameId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Shoe s where s.id = :id")
+    Optional<Shoe> findByIdForUpdate(@Param("id") Long id);
+
+    // Shuffles can rewrite the shoe's chunks without changing the shoe's row, so the following increment the shoe's
+    // version even if it doesn't change. A concurrent change to the shoe then conflicts with the shuffle.
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Shoe s where s.id = :id")
+    Optional<Shoe> findByIdForShuffle(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Shoe s where s.id = :id")
+    Optional<Shoe> findByIdForShuffleWithLock(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Shoe s where s.game.id = :gameId")
+    Optional<Shoe> findByGameIdForUpdate(@Param("gameId") Long gameId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Shoe s where s.game.id = (select p.game.id from Player p where p.id = :playerId)")
+    Optional<Shoe> findByPlayerIdForUpdate(@Param("playerId") Long playerId);
+
+    @Modifying
+    @Query("delete from Shoe s where s.game.id = :gameId")
+    void deleteByGameId(@Param("gameId") Long gameId);
 }
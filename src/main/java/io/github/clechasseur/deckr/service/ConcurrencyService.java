@@ -0,0 +1,64 @@
+package io.github.clechasseur.deckr.service;
+
+import io.github.clechasseur.deckr.model.ConcurrencyStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+// Runs mutations of a shoe (and the hands it deals to) in a transaction, according to the configured strategy:
+// - Isolation: in a REPEATABLE_READ transaction
+// - Optimistic: in a READ_COMMITTED transaction, retrying if the shoe or a player was modified concurrently
+// - Pessimistic: in a READ_COMMITTED transaction; ShoeService locks the shoe's row before reading it
+@Service
+public class ConcurrencyService {
+    private final ConcurrencyStrategy strategy;
+    private final int maxAttempts;
+    private final TransactionTemplate transactionTemplate;
+
+    public ConcurrencyService(PlatformTransactionManager transactionManager,
+                              @Value("${deckr.concurrency.strategy:Isolation}") ConcurrencyStrategy strategy,
+                              @Value("${deckr.concurrency.max-attempts:3}") int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of attempts: " + maxAttempts);
+        }
+        this.strategy = strategy;
+        this.maxAttempts = maxAttempts;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(strategy == ConcurrencyStrategy.Isolation
+                ? TransactionDefinition.ISOLATION_REPEATABLE_READ
+                : TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    public ConcurrencyStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void executeMutation(Runnable mutation) {
+        executeMutation(() -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    public <T> T executeMutation(Supplier<T> mutation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Caller owns the transaction, so we can't retry it
+            return mutation.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> mutation.get());
+            } catch (OptimisticLockingFailureException ex) {
+                if (strategy != ConcurrencyStrategy.Optimistic || attempt >= maxAttempts) {
+                    throw ex;
+                }
+            }
+        }
+    }
+}
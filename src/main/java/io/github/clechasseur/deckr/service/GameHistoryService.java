@@ -0,0 +1,50 @@
+package io.github.clechasseur.deckr.service;
+
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.exception.GameNotFoundException;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.repository.GameEventRecordRepository;
+import io.github.clechasseur.deckr.repository.GameRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+// Append-only log of the changes made to games, kept as an audit trail. Records are small and fixed in size, except
+// for those of deals which include the cards dealt.
+@Service
+public class GameHistoryService {
+    private final GameEventRecordRepository gameEventRecordRepository;
+    private final GameRepository gameRepository;
+    private final GameEngine gameEngine;
+
+    public GameHistoryService(GameEventRecordRepository gameEventRecordRepository, GameRepository gameRepository,
+                              GameEngine gameEngine) {
+        this.gameEventRecordRepository = gameEventRecordRepository;
+        this.gameRepository = gameRepository;
+        this.gameEngine = gameEngine;
+    }
+
+    // Must be called in the transaction making the change, so that the record is only kept if the change is.
+    public void record(Long gameId, GameEvent event) {
+        record(gameId, event, null);
+    }
+
+    public void record(Long gameId, GameEvent event, byte[] cards) {
+        gameEventRecordRepository.save(new GameEventRecord(gameId, event, cards, Instant.now()));
+    }
+
+    // The history of deleted games can still be read. With the game engine, records of a loaded game are only
+    // written when it is flushed, which is done first.
+    public List<GameEventRecord> getHistory(Long gameId, Pageable pageable) {
+        gameEngine.flushGame(gameId);
+        List<GameEventRecord> records =
+                gameEventRecordRepository.findByGameIdOrderByCreatedAtAscIdAsc(gameId, pageable);
+        if (records.isEmpty() && !gameRepository.existsById(gameId)) {
+            throw new GameNotFoundException(gameId);
+        }
+        return records;
+    }
+}
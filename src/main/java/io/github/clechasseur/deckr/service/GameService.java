@@ -1,25 +1,58 @@
 package io.github.clechasseur.deckr.service;
 
+import io.github.clechasseur.deckr.cache.CacheStats;
+import io.github.clechasseur.deckr.cache.GameCache;
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameNotFoundException;
-import io.github.clechasseur.deckr.model.CardAndSuit;
 import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameSummary;
 import io.github.clechasseur.deckr.model.Player;
 import io.github.clechasseur.deckr.model.PlayerAndValue;
 import io.github.clechasseur.deckr.repository.GameRepository;
-import io.github.clechasseur.deckr.util.CardUtils;
-import org.springframework.dao.EmptyResultDataAccessException;
+import io.github.clechasseur.deckr.repository.PlayerRepository;
+import io.github.clechasseur.deckr.repository.ShoeChunkRepository;
+import io.github.clechasseur.deckr.repository.ShoeRepository;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class GameService {
     private final GameRepository gameRepository;
+    private final PlayerRepository playerRepository;
+    private final ShoeRepository shoeRepository;
+    private final ShoeChunkRepository shoeChunkRepository;
+    private final GameEngine gameEngine;
+    private final GameCache gameCache;
+    private final GameCommandDispatcher commandDispatcher;
+    private final ConcurrencyService concurrencyService;
+    private final GameEventBroadcaster eventBroadcaster;
+    private final GameHistoryService historyService;
 
-    public GameService(GameRepository gameRepository) {
+    public GameService(GameRepository gameRepository, PlayerRepository playerRepository,
+                       ShoeRepository shoeRepository, ShoeChunkRepository shoeChunkRepository, GameEngine gameEngine,
+                       GameCache gameCache, GameCommandDispatcher commandDispatcher,
+                       ConcurrencyService concurrencyService, GameEventBroadcaster eventBroadcaster,
+                       GameHistoryService historyService) {
         this.gameRepository = gameRepository;
+        this.playerRepository = playerRepository;
+        this.shoeRepository = shoeRepository;
+        this.shoeChunkRepository = shoeChunkRepository;
+        this.gameEngine = gameEngine;
+        this.gameCache = gameCache;
+        this.commandDispatcher = commandDispatcher;
+        this.concurrencyService = concurrencyService;
+        this.eventBroadcaster = eventBroadcaster;
+        this.historyService = historyService;
     }
 
     public Game createGame(String name) {
@@ -28,35 +61,113 @@ public class GameService {
         return gameRepository.save(game);
     }
 
+    // The game returned might be shared with other callers, so it must not be modified; use getGameForUpdate instead.
+    @Transactional(readOnly = true)
     public Game getGame(Long id) {
+        if (gameEngine.isEnabled()) {
+            return gameEngine.getGame(id);
+        }
+        return gameCache.get(id, this::loadGame);
+    }
+
+    // Reads the game's row and counts its players, without loading the shoe's cards or the players' hands.
+    public GameSummary getGameSummary(Long id) {
+        if (gameEngine.isEnabled()) {
+            return GameSummary.of(gameEngine.getGame(id));
+        }
+        return gameRepository.findSummaryById(id).orElseThrow(() -> new GameNotFoundException(id));
+    }
+
+    // Players are only loaded if needed; use getGameWithPlayersForUpdate if they will be.
+    public Game getGameForUpdate(Long id) {
+        if (gameEngine.isEnabled()) {
+            return gameEngine.getGame(id);
+        }
         return gameRepository.findById(id).orElseThrow(() -> new GameNotFoundException(id));
     }
 
+    public Game getGameWithPlayersForUpdate(Long id) {
+        if (gameEngine.isEnabled()) {
+            return gameEngine.getGame(id);
+        }
+        return gameRepository.findWithPlayersById(id).orElseThrow(() -> new GameNotFoundException(id));
+    }
+
     public Game updateGame(Game game) {
-        return gameRepository.save(game);
+        Game savedGame = gameRepository.save(game);
+        reviseGame(game.getId(), 1);
+        return savedGame;
     }
 
-    public void deleteGame(Long id) {
-        try {
-            gameRepository.deleteById(id);
-        } catch (EmptyResultDataAccessException ex) {
-            throw new GameNotFoundException(id);
+    // Must be called whenever something in a game changes, including its shoe and players, in the same
+    // transaction as the change. Doesn't write anything: changes to the shoe and players update their version,
+    // which is part of the game's revision. Use reviseGame for changes that don't.
+    public void invalidateGame(Long id) {
+        gameCache.invalidate(id);
+    }
+
+    // Same as invalidateGame for changes that don't update the version of the game's shoe or players: creating or
+    // deleting them, or moving cards between the shoe's chunks. Increments the game's own revision, which costs an
+    // update of the game's row; when deleting something, the increment must be its version plus one so that the
+    // revision keeps going up.
+    public void reviseGame(Long id, long increment) {
+        gameRepository.incrementRevision(id, increment);
+        gameCache.invalidate(id);
+    }
+
+    // Reads only the game's revision; empty if the game doesn't exist. Outside the in-memory engine, this is the
+    // game's own revision plus the versions of its shoe and players, so it goes up with every change.
+    public Optional<Long> getRevision(Long id) {
+        if (gameEngine.isEnabled()) {
+            return Optional.of(gameEngine.getRevision(id));
         }
+        return gameRepository.findRevisionById(id);
+    }
+
+    public CacheStats getCacheStats() {
+        return gameCache.getStats();
     }
 
-    public List<PlayerAndValue> getPlayersAndValues(Long gameId) {
-        Game game = getGame(gameId);
-        return game.getPlayers().stream()
-                .map(player -> new PlayerAndValue(player, getPlayerValue(player)))
-                .sorted(Comparator.comparingInt(PlayerAndValue::getValue).reversed()
-                        .thenComparing(pv -> pv.getPlayer().getName()))
+    // Rows are deleted directly, without loading the game, its shoe and its players first.
+    public void deleteGame(Long id) {
+        commandDispatcher.run(() -> id, () -> concurrencyService.executeMutation(() -> {
+            gameEngine.gameDeleted(id);
+            gameCache.invalidate(id);
+            shoeChunkRepository.deleteByGameId(id);
+            playerRepository.deleteByGameId(id);
+            shoeRepository.deleteByGameId(id);
+            if (gameRepository.deleteGameById(id) == 0) {
+                throw new GameNotFoundException(id);
+            }
+            historyService.record(id, GameEvent.gameDeleted());
+        }));
+        eventBroadcaster.publish(() -> id, GameEvent.gameDeleted());
+    }
+
+    public List<PlayerAndValue> getPlayersAndValues(Long gameId, Pageable pageable) {
+        if (gameEngine.isEnabled()) {
+            Stream<Player> players = gameEngine.getPlayersByValue(gameId).stream();
+            if (pageable.isPaged()) {
+                players = players.skip(pageable.getOffset()).limit(pageable.getPageSize());
+            }
+            return players
+                    .map(player -> new PlayerAndValue(player, player.getHandValue()))
+                    .collect(Collectors.toList());
+        }
+        if (!gameRepository.existsById(gameId)) {
+            throw new GameNotFoundException(gameId);
+        }
+        return playerRepository.findByGameIdOrderByHandValueDescNameAsc(gameId, pageable).stream()
+                .map(player -> new PlayerAndValue(player, player.getHandValue()))
                 .collect(Collectors.toList());
     }
 
-    private static int getPlayerValue(Player player) {
-        return CardUtils.cardsAsList(player.getHand()).stream()
-                .map(CardAndSuit::parse)
-                .mapToInt(cs -> cs.getCard().getValue())
-                .sum();
+    private Game loadGame(Long id) {
+        Game game = gameRepository.findWithPlayersById(id).orElseThrow(() -> new GameNotFoundException(id));
+        if (game.getShoe() != null) {
+            // Cached games outlive the session they were loaded in
+            Hibernate.initialize(game.getShoe().getChunks());
+        }
+        return game;
     }
 }
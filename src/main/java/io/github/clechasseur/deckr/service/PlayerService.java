@@ -1,80 +1,209 @@
 package io.github.clechasseur.deckr.service;
 
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfCardsException;
 import io.github.clechasseur.deckr.exception.PlayerNotFoundException;
 import io.github.clechasseur.deckr.model.CardAndSuit;
 import io.github.clechasseur.deckr.model.Game;
 import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.PlayerSummary;
 import io.github.clechasseur.deckr.model.Shoe;
 import io.github.clechasseur.deckr.repository.PlayerRepository;
 import io.github.clechasseur.deckr.util.CardUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class PlayerService {
     private final PlayerRepository playerRepository;
     private final GameService gameService;
     private final ShoeService shoeService;
+    private final GameEngine gameEngine;
+    private final ConcurrencyService concurrencyService;
+    private final GameCommandDispatcher commandDispatcher;
+    private final GameEventBroadcaster eventBroadcaster;
+    private final GameHistoryService historyService;
 
-    public PlayerService(PlayerRepository playerRepository, GameService gameService, ShoeService shoeService) {
+    public PlayerService(PlayerRepository playerRepository, GameService gameService, ShoeService shoeService,
+                         GameEngine gameEngine, ConcurrencyService concurrencyService,
+                         GameCommandDispatcher commandDispatcher, GameEventBroadcaster eventBroadcaster,
+                         GameHistoryService historyService) {
         this.playerRepository = playerRepository;
         this.gameService = gameService;
         this.shoeService = shoeService;
+        this.gameEngine = gameEngine;
+        this.concurrencyService = concurrencyService;
+        this.commandDispatcher = commandDispatcher;
+        this.eventBroadcaster = eventBroadcaster;
+        this.historyService = historyService;
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Player createPlayer(Long gameId, String name) {
-        Game game = gameService.getGame(gameId);
-        Player player = new Player();
-        player.setGame(game);
-        player.setName(name);
-        return playerRepository.save(player);
+        Player createdPlayer = commandDispatcher.submit(() -> gameId, () -> concurrencyService.executeMutation(() -> {
+            // Not the cached game, which is shared and outlives this transaction
+            Game game = gameService.getGameForUpdate(gameId);
+            Player player = new Player();
+            player.setGame(game);
+            player.setName(name);
+            Player savedPlayer = playerRepository.save(player);
+            gameEngine.playerCreated(savedPlayer);
+            gameService.reviseGame(gameId, 1);
+            historyService.record(gameId, GameEvent.playerJoined(savedPlayer.getId(), name));
+            return savedPlayer;
+        }));
+        eventBroadcaster.publish(() -> gameId,
+                GameEvent.playerJoined(createdPlayer.getId(), createdPlayer.getName()));
+        return createdPlayer;
     }
 
     public Player getPlayer(Long id) {
+        if (gameEngine.isEnabled()) {
+            return gameEngine.getPlayer(id);
+        }
         return playerRepository.findById(id).orElseThrow(() -> new PlayerNotFoundException(id));
     }
 
-    @Transactional
+    public PlayerSummary getPlayerSummary(Long id) {
+        if (gameEngine.isEnabled()) {
+            return PlayerSummary.of(gameEngine.getPlayer(id));
+        }
+        return playerRepository.findSummaryById(id).orElseThrow(() -> new PlayerNotFoundException(id));
+    }
+
+    // Reads only the revision of the player's game; empty if the player doesn't exist.
+    public Optional<Long> getGameRevision(Long id) {
+        if (gameEngine.isEnabled()) {
+            return Optional.of(gameEngine.getRevisionOfPlayer(id));
+        }
+        return playerRepository.findGameRevisionById(id);
+    }
+
     public void deletePlayer(Long id) {
-        Player player = getPlayer(id);
-        Game game = player.getGame();
-        List<Player> gamePlayers = game.getPlayers();
-        Player playerToRemove = gamePlayers.stream()
-                .filter(p -> p.getId().equals(id))
-                .findFirst()
-                .orElseThrow(() -> new PlayerNotFoundException(id));
-        gamePlayers.remove(playerToRemove);
-        gameService.updateGame(game);
+        Long gameId = submitForPlayer(id, () -> {
+            Player player = playerRepository.findById(id).orElseThrow(() -> new PlayerNotFoundException(id));
+            playerRepository.delete(player);
+            gameEngine.playerDeleted(id);
+            gameService.reviseGame(player.getGame().getId(), player.getVersion() + 1);
+            historyService.record(player.getGame().getId(), GameEvent.playerLeft(id));
+            return player.getGame().getId();
+        });
+        eventBroadcaster.publish(() -> gameId, GameEvent.playerLeft(id));
     }
 
     public List<CardAndSuit> getCards(Long playerId) {
         Player player = getPlayer(playerId);
-        return CardUtils.cardsAsList(player.getHand()).stream()
-                .map(CardAndSuit::parse)
-                .collect(Collectors.toList());
+        return CardUtils.decode(player.getHand());
+    }
+
+    // Cards are decoded lazily as the stream is consumed
+    public Stream<CardAndSuit> streamCards(Long playerId) {
+        return CardUtils.stream(getPlayer(playerId).getHand());
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public void dealCards(Long playerId, int numCards) {
-        Player player = getPlayer(playerId);
+        int numCardsDealt;
+        if (gameEngine.isEnabled()) {
+            numCardsDealt = gameEngine.dealCards(playerId, numCards);
+        } else {
+            numCardsDealt = submitForPlayer(playerId, () -> dealCardsToPlayer(playerId, numCards));
+        }
+        // Fewer cards than requested are dealt if the shoe runs out
+        if (numCardsDealt != 0) {
+            eventBroadcaster.publish(() -> getGameIdOfPlayer(playerId), GameEvent.cardsDealt(playerId, numCardsDealt));
+        }
+    }
+
+    public void dealRound(Long gameId, int cardsEach) {
+        if (cardsEach < 0) {
+            throw new InvalidNumberOfCardsException(cardsEach);
+        }
+        int numCardsDealt;
+        if (gameEngine.isEnabled()) {
+            numCardsDealt = gameEngine.dealRound(gameId, cardsEach);
+        } else {
+            numCardsDealt = commandDispatcher.submit(() -> gameId,
+                    () -> concurrencyService.executeMutation(() -> dealRoundInGame(gameId, cardsEach)));
+        }
+        // Nothing is dealt if the game has no players or if the shoe is empty
+        if (numCardsDealt != 0) {
+            eventBroadcaster.publish(() -> gameId, GameEvent.roundDealt(cardsEach));
+        }
+    }
+
+    private <T> T submitForPlayer(Long playerId, Supplier<T> mutation) {
+        return commandDispatcher.submit(() -> getGameIdOfPlayer(playerId),
+                () -> concurrencyService.executeMutation(mutation));
+    }
+
+    private Long getGameIdOfPlayer(Long playerId) {
+        return playerRepository.findGameIdById(playerId).orElseThrow(() -> new PlayerNotFoundException(playerId));
+    }
+
+    // Returns the number of cards dealt
+    private int dealCardsToPlayer(Long playerId, int numCards) {
+        shoeService.lockShoeOfPlayer(playerId);
+        Player player = playerRepository.findWithGameAndShoeById(playerId)
+                .orElseThrow(() -> new PlayerNotFoundException(playerId));
         Shoe shoe = player.getGame().getShoe();
         if (shoe == null) {
             throw new GameWithoutShoeException(player.getGame().getId());
         }
-        List<String> shoeCards = CardUtils.cardsAsList(shoe.getCards());
-        if (!shoeCards.isEmpty()) {
-            List<String> playerHand = CardUtils.cardsAsList(player.getHand());
-            playerHand.addAll(shoeCards.stream().limit(numCards).collect(Collectors.toList()));
-            player.setHand(String.join(",", playerHand));
-            shoe.setCards(shoeCards.stream().skip(numCards).collect(Collectors.joining(",")));
+        if (shoe.getNumCardsLeft() != 0) {
+            byte[] cards = shoeService.drawCards(shoe, numCards);
+            addCardsToHand(player, cards);
             shoeService.updateShoe(shoe);
             playerRepository.save(player);
+            historyService.record(player.getGame().getId(), GameEvent.cardsDealt(playerId, cards.length), cards);
+            return cards.length;
         }
+        return 0;
+    }
+
+    // Returns the number of cards dealt to all players
+    private int dealRoundInGame(Long gameId, int cardsEach) {
+        shoeService.lockShoeOfGame(gameId);
+        Game game = gameService.getGameWithPlayersForUpdate(gameId);
+        Shoe shoe = game.getShoe();
+        if (shoe == null) {
+            throw new GameWithoutShoeException(gameId);
+        }
+        List<Player> players = new ArrayList<>(game.getPlayers() != null ? game.getPlayers() : List.of());
+        if (!players.isEmpty() && shoe.getNumCardsLeft() != 0) {
+            // Deal in seating order, which is the order in which players joined
+            players.sort(Comparator.comparing(Player::getId));
+            int numPlayers = players.size();
+            byte[] cardsDealt = shoeService.drawCards(shoe, (int) Math.min((long) cardsEach * numPlayers,
+                    Integer.MAX_VALUE));
+            byte[][] hands = CardUtils.dealAround(cardsDealt, numPlayers);
+            for (int seat = 0; seat < numPlayers; seat++) {
+                addCardsToHand(players.get(seat), hands[seat]);
+            }
+            shoeService.updateShoe(shoe);
+            playerRepository.saveAll(players);
+            for (int seat = 0; seat < numPlayers; seat++) {
+                if (hands[seat].length != 0) {
+                    historyService.record(gameId, GameEvent.cardsDealt(players.get(seat).getId(),
+                            hands[seat].length), hands[seat]);
+                }
+            }
+            return cardsDealt.length;
+        }
+        return 0;
+    }
+
+    private static void addCardsToHand(Player player, byte[] cards) {
+        player.setHand(CardUtils.concat(player.getHand(), cards));
+        player.setHandValue(player.getHandValue() + CardUtils.sumValues(cards));
+        player.setCardCount(player.getCardCount() + cards.length);
     }
 }
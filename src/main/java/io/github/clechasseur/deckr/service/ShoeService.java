@@ -1,112 +1,423 @@
 package io.github.clechasseur.deckr.service;
 
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameAlreadyHasShoeException;
+import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfDecksException;
 import io.github.clechasseur.deckr.exception.ShoeNotFoundException;
 import io.github.clechasseur.deckr.model.Card;
 import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.CardCount;
+import io.github.clechasseur.deckr.model.ConcurrencyStrategy;
 import io.github.clechasseur.deckr.model.Game;
 import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.model.ShoeChunkId;
+import io.github.clechasseur.deckr.model.ShoeSummary;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
 import io.github.clechasseur.deckr.model.Suit;
+import io.github.clechasseur.deckr.repository.ShoeChunkRepository;
 import io.github.clechasseur.deckr.repository.ShoeRepository;
 import io.github.clechasseur.deckr.util.ArrayUtils;
 import io.github.clechasseur.deckr.util.CardUtils;
-import io.github.clechasseur.deckr.util.StringUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ShoeService {
+    // Card indexes ordered by suit, then by descending card value
+    private static final int[] SORTED_CARD_INDEXES = Arrays.stream(Suit.values())
+            .flatMap(suit -> Arrays.stream(Card.values())
+                    .sorted(Comparator.comparingInt(Card::getValue).reversed())
+                    .map(card -> CardAndSuit.of(card, suit)))
+            .mapToInt(CardAndSuit::getIndex)
+            .toArray();
+
+    // Standard deck of cards, built once and copied every time decks are added to a shoe
+    private static final byte[] STANDARD_DECK = getStandardDeck();
+
     private final ShoeRepository shoeRepository;
+    private final ShoeChunkRepository shoeChunkRepository;
     private final GameService gameService;
+    private final ShuffleService shuffleService;
+    private final GameEngine gameEngine;
+    private final ConcurrencyService concurrencyService;
+    private final GameCommandDispatcher commandDispatcher;
+    private final GameEventBroadcaster eventBroadcaster;
+    private final GameHistoryService historyService;
 
-    public ShoeService(ShoeRepository shoeRepository, GameService gameService) {
+    public ShoeService(ShoeRepository shoeRepository, ShoeChunkRepository shoeChunkRepository,
+                       GameService gameService, ShuffleService shuffleService, GameEngine gameEngine,
+                       ConcurrencyService concurrencyService, GameCommandDispatcher commandDispatcher,
+                       GameEventBroadcaster eventBroadcaster, GameHistoryService historyService) {
         this.shoeRepository = shoeRepository;
+        this.shoeChunkRepository = shoeChunkRepository;
         this.gameService = gameService;
+        this.shuffleService = shuffleService;
+        this.gameEngine = gameEngine;
+        this.concurrencyService = concurrencyService;
+        this.commandDispatcher = commandDispatcher;
+        this.eventBroadcaster = eventBroadcaster;
+        this.historyService = historyService;
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public Shoe createShoe(Long gameId) {
-        Game game = gameService.getGame(gameId);
-        if (game.getShoe() != null) {
-            throw new GameAlreadyHasShoeException(gameId);
-        }
-        Shoe shoe = new Shoe();
-        shoe.setGame(game);
-        return shoeRepository.save(shoe);
+        Shoe createdShoe = commandDispatcher.submit(() -> gameId, () -> concurrencyService.executeMutation(() -> {
+            Game game = gameService.getGameForUpdate(gameId);
+            if (game.getShoe() != null) {
+                throw new GameAlreadyHasShoeException(gameId);
+            }
+            Shoe shoe = new Shoe();
+            shoe.setGame(game);
+            Shoe savedShoe = shoeRepository.save(shoe);
+            gameEngine.shoeCreated(savedShoe);
+            gameService.reviseGame(gameId, 1);
+            historyService.record(gameId, GameEvent.shoeCreated());
+            return savedShoe;
+        }));
+        eventBroadcaster.publish(() -> gameId, GameEvent.shoeCreated());
+        return createdShoe;
     }
 
     public Shoe getShoe(Long id) {
+        if (gameEngine.isEnabled()) {
+            return gameEngine.getShoe(id);
+        }
         return shoeRepository.findById(id).orElseThrow(() -> new ShoeNotFoundException(id));
     }
 
+    // Reads only the id of the game's shoe, so that the shoe isn't loaded before it's read or changed.
+    public Long getShoeIdOfGame(Long gameId) {
+        if (gameEngine.isEnabled()) {
+            Shoe shoe = gameEngine.getGame(gameId).getShoe();
+            if (shoe == null) {
+                throw new GameWithoutShoeException(gameId);
+            }
+            return shoe.getId();
+        }
+        return shoeRepository.findIdByGameId(gameId).orElseThrow(() -> {
+            // Throws if the game doesn't exist
+            gameService.getGameSummary(gameId);
+            return new GameWithoutShoeException(gameId);
+        });
+    }
+
+    public ShoeSummary getShoeSummaryOfGame(Long gameId) {
+        if (gameEngine.isEnabled()) {
+            Shoe shoe = gameEngine.getGame(gameId).getShoe();
+            if (shoe == null) {
+                throw new GameWithoutShoeException(gameId);
+            }
+            return ShoeSummary.of(shoe);
+        }
+        return shoeRepository.findSummaryByGameId(gameId).orElseThrow(() -> {
+            // Throws if the game doesn't exist
+            gameService.getGameSummary(gameId);
+            return new GameWithoutShoeException(gameId);
+        });
+    }
+
     public Shoe updateShoe(Shoe shoe) {
-        return shoeRepository.save(shoe);
+        Shoe savedShoe = shoeRepository.save(shoe);
+        gameService.invalidateGame(shoe.getGame().getId());
+        return savedShoe;
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public void addDeckToShoe(Long shoeId) {
-        Shoe shoe = getShoe(shoeId);
-        String cards = StringUtils.orEmptyString(shoe.getCards());
-        if (!cards.isEmpty()) {
-            cards += ",";
+    public void addDecksToShoe(Long shoeId, int numDecks) {
+        if (numDecks < 1) {
+            throw new InvalidNumberOfDecksException(numDecks);
+        }
+        byte[] decks = getStandardDecks(numDecks);
+        if (gameEngine.isEnabled()) {
+            gameEngine.addDecks(shoeId, decks, numDecks);
+        } else {
+            executeForShoe(shoeId, () -> {
+                Shoe shoe = getShoeForUpdate(shoeId);
+                int[] cardCounts = shoe.getCardCounts();
+                for (byte card : STANDARD_DECK) {
+                    cardCounts[card] += numDecks;
+                }
+                appendCards(shoe, decks);
+                shoe.setCardCounts(cardCounts);
+                updateShoe(shoe);
+                historyService.record(shoe.getGame().getId(), GameEvent.decksAdded(numDecks));
+            });
         }
-        cards += getStandardDeck();
-        shoe.setCards(cards);
-        shoeRepository.save(shoe);
+        eventBroadcaster.publish(() -> getGameIdOfShoe(shoeId), GameEvent.decksAdded(numDecks));
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public void shuffle(Long shoeId) {
-        Shoe shoe = getShoe(shoeId);
-        String nonNullCards = StringUtils.orEmptyString(shoe.getCards());
-        if (!nonNullCards.isEmpty()) {
-            String[] cards = nonNullCards.split(",");
-            ArrayUtils.shuffleArray(cards);
-            shoe.setCards(String.join(",", cards));
-            shoeRepository.save(shoe);
+    // If no strategy is given, the shoe's strategy (or the default strategy) is used. Nothing happens if no strategy
+    // is given and the shoe is empty.
+    public void shuffle(Long shoeId, ShuffleStrategy strategy) {
+        ShuffleStrategy actualStrategy;
+        if (gameEngine.isEnabled()) {
+            actualStrategy = gameEngine.shuffle(shoeId, strategy);
+        } else {
+            actualStrategy = submitForShoe(shoeId, () -> shuffleShoe(getShoeForShuffle(shoeId), strategy));
+        }
+        if (actualStrategy != null) {
+            eventBroadcaster.publish(() -> getGameIdOfShoe(shoeId), GameEvent.shuffled(actualStrategy));
+        }
+    }
+
+    // With the Pessimistic concurrency strategy, the following lock the shoe's row until the end of the transaction.
+    // They must be called before anything else in the game is read in that transaction.
+
+    public void lockShoeOfGame(Long gameId) {
+        if (concurrencyService.getStrategy() == ConcurrencyStrategy.Pessimistic) {
+            shoeRepository.findByGameIdForUpdate(gameId);
+        }
+    }
+
+    public void lockShoeOfPlayer(Long playerId) {
+        if (concurrencyService.getStrategy() == ConcurrencyStrategy.Pessimistic) {
+            shoeRepository.findByPlayerIdForUpdate(playerId);
+        }
+    }
+
+    // Removes up to numCards cards from the top of the shoe and returns them. Only the chunks holding those cards
+    // are read; chunks that have been completely dealt are deleted. Caller is responsible for saving the shoe.
+    public byte[] drawCards(Shoe shoe, int numCards) {
+        int[] cardCounts = shoe.getCardCounts();
+        int from = shoe.getNextCard();
+        int to = from + Math.max(Math.min(numCards, shoe.getNumCardsLeft()), 0);
+        byte[] cards = new byte[to - from];
+        if (cards.length != 0) {
+            List<ShoeChunk> chunks = shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(
+                    shoe.getId(), ShoeChunk.chunkIndexOf(from), ShoeChunk.chunkIndexOf(to - 1));
+            if (from < shoe.getLazyShuffleEnd()) {
+                shuffleOnDraw(shoe, chunks, from, to);
+            }
+            ShoeChunk.copyCards(chunks, from, to, cards, 0);
+            for (byte card : cards) {
+                cardCounts[card]--;
+            }
+            for (ShoeChunk chunk : chunks) {
+                // Keep the last chunk around while it can still receive cards
+                if (chunk.isFull() && chunk.getEndPosition() <= to) {
+                    shoeChunkRepository.delete(chunk);
+                }
+            }
+            shoe.setNextCard(to);
+            shoe.setCardCounts(cardCounts);
         }
+        return cards;
     }
 
     public Map<Suit, Integer> getCountOfCardsLeftBySuit(Long shoeId) {
-        Shoe shoe = getShoe(shoeId);
-        Map<Suit, Integer> counts = new HashMap<>();
-        CardUtils.cardsAsList(shoe.getCards()).stream()
-                .map(CardAndSuit::parse)
-                .map(CardAndSuit::getSuit)
-                .forEach(suit -> counts.put(suit, counts.getOrDefault(suit, 0) + 1));
+        int[] cardCounts = getShoe(shoeId).getCardCounts();
+        Map<Suit, Integer> counts = new EnumMap<>(Suit.class);
+        for (Suit suit : Suit.values()) {
+            int count = CardUtils.countBySuit(cardCounts, suit);
+            if (count != 0) {
+                counts.put(suit, count);
+            }
+        }
         return counts;
     }
 
     public List<CardAndSuit> getCardsLeft(Long shoeId) {
         Shoe shoe = getShoe(shoeId);
-        return CardUtils.cardsAsList(shoe.getCards()).stream()
-                .map(CardAndSuit::parse)
-                .sorted(Comparator.comparing(CardAndSuit::getSuit)
-                        .thenComparing(cs -> cs.getCard().getValue(), Comparator.reverseOrder()))
-                .collect(Collectors.toList());
+        int[] cardCounts = shoe.getCardCounts();
+        List<CardAndSuit> cards = new ArrayList<>(shoe.getNumCardsLeft());
+        for (int index : SORTED_CARD_INDEXES) {
+            CardAndSuit card = CardAndSuit.fromIndex(index);
+            for (int i = 0; i < cardCounts[index]; i++) {
+                cards.add(card);
+            }
+        }
+        return cards;
+    }
+
+    // Same order as getCardsLeft, but cards are produced lazily as the stream is consumed
+    public Stream<CardAndSuit> streamCardsLeft(Long shoeId) {
+        int[] cardCounts = getShoe(shoeId).getCardCounts().clone();
+        return Arrays.stream(SORTED_CARD_INDEXES)
+                .filter(index -> cardCounts[index] != 0)
+                .boxed()
+                .flatMap(index -> Collections.nCopies(cardCounts[index], CardAndSuit.fromIndex(index)).stream());
+    }
+
+    public List<CardCount> getCardCountsLeft(Long shoeId) {
+        int[] cardCounts = getShoe(shoeId).getCardCounts();
+        List<CardCount> counts = new ArrayList<>();
+        for (int index : SORTED_CARD_INDEXES) {
+            if (cardCounts[index] != 0) {
+                counts.add(new CardCount(CardAndSuit.fromIndex(index), cardCounts[index]));
+            }
+        }
+        return counts;
+    }
+
+    private void executeForShoe(Long shoeId, Runnable mutation) {
+        commandDispatcher.run(() -> getGameIdOfShoe(shoeId), () -> concurrencyService.executeMutation(mutation));
+    }
+
+    private <T> T submitForShoe(Long shoeId, Supplier<T> mutation) {
+        return commandDispatcher.submit(() -> getGameIdOfShoe(shoeId),
+                () -> concurrencyService.executeMutation(mutation));
+    }
+
+    private Long getGameIdOfShoe(Long shoeId) {
+        return shoeRepository.findGameIdById(shoeId).orElseThrow(() -> new ShoeNotFoundException(shoeId));
+    }
+
+    private Shoe getShoeForUpdate(Long shoeId) {
+        if (concurrencyService.getStrategy() == ConcurrencyStrategy.Pessimistic) {
+            return shoeRepository.findByIdForUpdate(shoeId).orElseThrow(() -> new ShoeNotFoundException(shoeId));
+        }
+        return getShoe(shoeId);
+    }
+
+    private Shoe getShoeForShuffle(Long shoeId) {
+        Optional<Shoe> shoe = concurrencyService.getStrategy() == ConcurrencyStrategy.Pessimistic
+                ? shoeRepository.findByIdForShuffleWithLock(shoeId)
+                : shoeRepository.findByIdForShuffle(shoeId);
+        return shoe.orElseThrow(() -> new ShoeNotFoundException(shoeId));
+    }
+
+    // Returns the strategy used, or null if there was nothing to do
+    private ShuffleStrategy shuffleShoe(Shoe shoe, ShuffleStrategy strategy) {
+        if (strategy != null) {
+            shoe.setShuffleStrategy(strategy);
+        }
+        ShuffleStrategy actualStrategy = shoe.getShuffleStrategy() != null
+                ? shoe.getShuffleStrategy()
+                : shuffleService.getDefaultStrategy();
+        if (shoe.getNumCardsLeft() != 0 && actualStrategy == ShuffleStrategy.OnDraw) {
+            // Cards will be shuffled as they are drawn, see drawCards
+            shoe.setLazyShuffleEnd(shoe.getNumCards());
+        } else if (shoe.getNumCardsLeft() != 0) {
+            List<ShoeChunk> chunks = shoeChunkRepository.findByShoeIdOrderByChunkIndex(shoe.getId());
+            byte[] cards = new byte[shoe.getNumCardsLeft()];
+            ShoeChunk.copyCards(chunks, shoe.getNextCard(), shoe.getNumCards(), cards, 0);
+            shuffleService.shuffle(cards, actualStrategy);
+            rewriteCards(shoe, chunks, cards);
+        }
+        if (strategy == null && shoe.getNumCardsLeft() == 0) {
+            return null;
+        }
+        updateShoe(shoe);
+        historyService.record(shoe.getGame().getId(), GameEvent.shuffled(actualStrategy));
+        return actualStrategy;
+    }
+
+    // Swaps each card about to be drawn with a random card from the part of the shoe that has not been shuffled yet.
+    // This is one step of a Fisher-Yates shuffle per card, so only the chunks of the swapped cards are touched.
+    private void shuffleOnDraw(Shoe shoe, List<ShoeChunk> headChunks, int from, int to) {
+        Map<Integer, ShoeChunk> chunks = new HashMap<>();
+        for (ShoeChunk chunk : headChunks) {
+            chunks.put(chunk.getChunkIndex(), chunk);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int end = shoe.getLazyShuffleEnd();
+        for (int position = from; position < Math.min(to, end); position++) {
+            int otherPosition = position + random.nextInt(end - position);
+            if (otherPosition != position) {
+                ShoeChunk chunk = chunks.get(ShoeChunk.chunkIndexOf(position));
+                ShoeChunk otherChunk = chunks.computeIfAbsent(ShoeChunk.chunkIndexOf(otherPosition), chunkIndex -> {
+                    ShoeChunkId chunkId = new ShoeChunkId(shoe.getId(), chunkIndex);
+                    return shoeChunkRepository.findById(chunkId).orElseThrow(
+                            () -> new IllegalStateException("Missing chunk " + chunkId));
+                });
+                int index = position - chunk.getStartPosition();
+                int otherIndex = otherPosition - otherChunk.getStartPosition();
+                byte card = chunk.getCards()[index];
+                chunk.getCards()[index] = otherChunk.getCards()[otherIndex];
+                otherChunk.getCards()[otherIndex] = card;
+            }
+        }
+        shoeChunkRepository.saveAll(chunks.values());
+        shoe.setLazyShuffleEnd(to < end ? end : 0);
+    }
+
+    private void appendCards(Shoe shoe, byte[] cards) {
+        int position = shoe.getNumCards();
+        int appended = 0;
+        while (appended < cards.length) {
+            int chunkIndex = ShoeChunk.chunkIndexOf(position);
+            ShoeChunk chunk;
+            if (position % ShoeChunk.SIZE != 0) {
+                ShoeChunkId chunkId = new ShoeChunkId(shoe.getId(), chunkIndex);
+                chunk = shoeChunkRepository.findById(chunkId).orElseThrow(
+                        () -> new IllegalStateException("Missing tail chunk " + chunkId));
+            } else {
+                chunk = new ShoeChunk(shoe, chunkIndex, ArrayUtils.EMPTY_BYTE_ARRAY);
+            }
+            int count = Math.min(ShoeChunk.SIZE - chunk.getCards().length, cards.length - appended);
+            byte[] chunkCards = Arrays.copyOf(chunk.getCards(), chunk.getCards().length + count);
+            System.arraycopy(cards, appended, chunkCards, chunk.getCards().length, count);
+            chunk.setCards(chunkCards);
+            shoeChunkRepository.save(chunk);
+            appended += count;
+            position += count;
+        }
+        shoe.setNumCards(position);
+    }
+
+    // Replaces the content of the shoe with the given cards, reusing existing chunk rows where possible.
+    private void rewriteCards(Shoe shoe, List<ShoeChunk> chunks, byte[] cards) {
+        int numChunks = ShoeChunk.chunkIndexOf(cards.length + ShoeChunk.SIZE - 1);
+        ShoeChunk[] newChunks = new ShoeChunk[numChunks];
+        for (ShoeChunk chunk : chunks) {
+            if (chunk.getChunkIndex() < numChunks) {
+                newChunks[chunk.getChunkIndex()] = chunk;
+            } else {
+                shoeChunkRepository.delete(chunk);
+            }
+        }
+        for (int chunkIndex = 0; chunkIndex < numChunks; chunkIndex++) {
+            int from = chunkIndex * ShoeChunk.SIZE;
+            byte[] chunkCards = Arrays.copyOfRange(cards, from, Math.min(from + ShoeChunk.SIZE, cards.length));
+            if (newChunks[chunkIndex] == null) {
+                newChunks[chunkIndex] = new ShoeChunk(shoe, chunkIndex, chunkCards);
+            } else {
+                newChunks[chunkIndex].setCards(chunkCards);
+            }
+        }
+        shoeChunkRepository.saveAll(Arrays.asList(newChunks));
+        shoe.setNumCards(cards.length);
+        shoe.setNextCard(0);
+        shoe.setLazyShuffleEnd(0);
+    }
+
+    // Package-private for benchmarks
+    static byte[] getStandardDecks(int numDecks) {
+        byte[] decks = new byte[STANDARD_DECK.length * numDecks];
+        for (int i = 0; i < numDecks; i++) {
+            System.arraycopy(STANDARD_DECK, 0, decks, i * STANDARD_DECK.length, STANDARD_DECK.length);
+        }
+        return decks;
     }
 
-    private static String getStandardDeck() {
-        return Arrays.stream(Suit.values())
-                .map(ShoeService::getStandardSuit)
-                .collect(Collectors.joining(","));
+    static byte[] getStandardDeck() {
+        return CardUtils.encode(Arrays.stream(Suit.values())
+                .flatMap(ShoeService::getStandardSuit)
+                .collect(Collectors.toList()));
     }
 
-    private static String getStandardSuit(Suit suit) {
+    private static Stream<CardAndSuit> getStandardSuit(Suit suit) {
         return Arrays.stream(Card.values())
-                .map(c -> getStandardCard(suit, c))
-                .collect(Collectors.joining(","));
+                .map(c -> getStandardCard(suit, c));
     }
 
-    private static String getStandardCard(Suit suit, Card card) {
-        return new CardAndSuit(card, suit).toString();
+    private static CardAndSuit getStandardCard(Suit suit, Card card) {
+        return CardAndSuit.of(card, suit);
     }
 }
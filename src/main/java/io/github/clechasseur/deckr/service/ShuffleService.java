@@ -0,0 +1,42 @@
+package io.github.clechasseur.deckr.service;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.shuffle.ShuffleEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ShuffleService {
+    private final Map<ShuffleStrategy, ShuffleEngine> engines = new EnumMap<>(ShuffleStrategy.class);
+    private final ShuffleStrategy defaultStrategy;
+
+    public ShuffleService(List<ShuffleEngine> engines,
+                          @Value("${deckr.shuffle.strategy:InPlace}") ShuffleStrategy defaultStrategy) {
+        for (ShuffleEngine engine : engines) {
+            this.engines.put(engine.getStrategy(), engine);
+        }
+        // Shuffling on draw is handled by ShoeService itself
+        if (defaultStrategy != ShuffleStrategy.OnDraw && !this.engines.containsKey(defaultStrategy)) {
+            throw new IllegalStateException("No shuffle engine for default strategy " + defaultStrategy);
+        }
+        this.defaultStrategy = defaultStrategy;
+    }
+
+    public ShuffleStrategy getDefaultStrategy() {
+        return defaultStrategy;
+    }
+
+    // Shuffles cards in place using the given strategy, or the default strategy if null
+    public void shuffle(byte[] cards, ShuffleStrategy strategy) {
+        ShuffleStrategy actualStrategy = strategy != null ? strategy : defaultStrategy;
+        ShuffleEngine engine = engines.get(actualStrategy);
+        if (engine == null) {
+            throw new IllegalArgumentException("No shuffle engine for strategy " + actualStrategy);
+        }
+        engine.shuffle(cards);
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.util.ArrayUtils;
+import org.springframework.stereotype.Component;
+
+@Component
+public class InPlaceShuffleEngine implements ShuffleEngine {
+    @Override
+    public ShuffleStrategy getStrategy() {
+        return ShuffleStrategy.InPlace;
+    }
+
+    @Override
+    public void shuffle(byte[] cards) {
+        ArrayUtils.shuffleArray(cards);
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+// MergeShuffle, see https://arxiv.org/abs/1508.03167
+// Both halves are shuffled in parallel, then merged randomly.
+@Component
+public class ParallelShuffleEngine implements ShuffleEngine {
+    // Below this, splitting costs more than it saves
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    @Override
+    public ShuffleStrategy getStrategy() {
+        return ShuffleStrategy.Parallel;
+    }
+
+    @Override
+    public void shuffle(byte[] cards) {
+        if (cards.length <= SEQUENTIAL_THRESHOLD) {
+            fisherYates(cards, 0, cards.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new MergeShuffleAction(cards, 0, cards.length));
+        }
+    }
+
+    private static void fisherYates(byte[] cards, int from, int to) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = to - 1; i > from; i--) {
+            swap(cards, i, from + random.nextInt(i - from + 1));
+        }
+    }
+
+    private static void merge(byte[] cards, int from, int mid, int to) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = from;
+        int j = mid;
+        long bits = 0;
+        int bitsLeft = 0;
+        while (true) {
+            if (bitsLeft == 0) {
+                bits = random.nextLong();
+                bitsLeft = Long.SIZE;
+            }
+            boolean takeFromRight = (bits & 1) != 0;
+            bits >>>= 1;
+            bitsLeft--;
+            if (takeFromRight) {
+                if (j == to) {
+                    break;
+                }
+                swap(cards, i, j++);
+            } else if (i == j) {
+                break;
+            }
+            i++;
+        }
+        // One side is exhausted; insert the remaining cards at random positions
+        for (; i < to; i++) {
+            swap(cards, i, from + random.nextInt(i - from + 1));
+        }
+    }
+
+    private static void swap(byte[] cards, int i, int j) {
+        byte card = cards[i];
+        cards[i] = cards[j];
+        cards[j] = card;
+    }
+
+    private static final class MergeShuffleAction extends RecursiveAction {
+        private final byte[] cards;
+        private final int from;
+        private final int to;
+
+        MergeShuffleAction(byte[] cards, int from, int to) {
+            this.cards = cards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                fisherYates(cards, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MergeShuffleAction(cards, from, mid), new MergeShuffleAction(cards, mid, to));
+                merge(cards, from, mid, to);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+@Component
+public class SecureRandomShuffleEngine implements ShuffleEngine {
+    private static final int BATCH_SIZE = 4096;
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    @Override
+    public ShuffleStrategy getStrategy() {
+        return ShuffleStrategy.Secure;
+    }
+
+    @Override
+    public void shuffle(byte[] cards) {
+        RandomBytes randomBytes = new RandomBytes(RANDOM.get(), Math.min(BATCH_SIZE, (cards.length + 1) * Integer.BYTES));
+        for (int i = cards.length - 1; i > 0; i--) {
+            int index = randomBytes.nextInt(i + 1);
+            byte card = cards[index];
+            cards[index] = cards[i];
+            cards[i] = card;
+        }
+    }
+
+    // Pulls random bytes from the SecureRandom in batches, since each call to it is costly
+    private static final class RandomBytes {
+        private final SecureRandom random;
+        private final byte[] batch;
+        private int position;
+
+        RandomBytes(SecureRandom random, int batchSize) {
+            this.random = random;
+            this.batch = new byte[batchSize - batchSize % Integer.BYTES];
+            this.position = batch.length;
+        }
+
+        int nextInt() {
+            if (position == batch.length) {
+                random.nextBytes(batch);
+                position = 0;
+            }
+            int value = (batch[position] & 0xff) << 24 | (batch[position + 1] & 0xff) << 16 |
+                    (batch[position + 2] & 0xff) << 8 | (batch[position + 3] & 0xff);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        // Unbiased integer in [0, bound), see https://arxiv.org/abs/1805.10941
+        int nextInt(int bound) {
+            long threshold = (1L << 32) % bound;
+            long product;
+            do {
+                product = (nextInt() & 0xffffffffL) * bound;
+            } while ((product & 0xffffffffL) < threshold);
+            return (int) (product >>> 32);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+
+public interface ShuffleEngine {
+    ShuffleStrategy getStrategy();
+
+    void shuffle(byte[] cards);
+}
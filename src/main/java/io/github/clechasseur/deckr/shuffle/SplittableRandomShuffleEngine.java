@@ -0,0 +1,28 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.SplittableRandom;
+
+@Component
+public class SplittableRandomShuffleEngine implements ShuffleEngine {
+    // SplittableRandom is not thread-safe, so each thread gets its own
+    private static final ThreadLocal<SplittableRandom> RANDOM = ThreadLocal.withInitial(SplittableRandom::new);
+
+    @Override
+    public ShuffleStrategy getStrategy() {
+        return ShuffleStrategy.Splittable;
+    }
+
+    @Override
+    public void shuffle(byte[] cards) {
+        SplittableRandom random = RANDOM.get();
+        for (int i = cards.length - 1; i > 0; i--) {
+            int index = random.nextInt(i + 1);
+            byte card = cards[index];
+            cards[index] = cards[i];
+            cards[i] = card;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 public final class ArrayUtils {
+    public static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
     private ArrayUtils() {
     }
 
@@ -17,4 +19,18 @@ public final class ArrayUtils {
             elements[i] = e;
         }
     }
+
+    public static void shuffleArray(byte[] elements) {
+        Random random = ThreadLocalRandom.current();
+        for (int i = elements.length - 1; i > 0; i--) {
+            int index = random.nextInt(i + 1);
+            byte e = elements[index];
+            elements[index] = elements[i];
+            elements[i] = e;
+        }
+    }
+
+    public static byte[] orEmptyArray(byte[] thisOr) {
+        return thisOr != null ? thisOr : EMPTY_BYTE_ARRAY;
+    }
 }
@@ -1,8 +1,15 @@
 package io.github.clechasseur.deckr.util;
 
+import io.github.clechasseur.deckr.model.Card;
+import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.Suit;
+
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public final class CardUtils {
     private CardUtils() {
@@ -15,4 +22,124 @@ public final class CardUtils {
         }
         return new ArrayList<>(Arrays.asList(nonNullCards.split(",")));
     }
+
+    public static byte[] encode(Collection<CardAndSuit> cards) {
+        byte[] encoded = new byte[cards.size()];
+        int i = 0;
+        for (CardAndSuit card : cards) {
+            encoded[i++] = (byte) card.getIndex();
+        }
+        return encoded;
+    }
+
+    public static byte[] encode(CharSequence cards) {
+        if (cards == null || cards.length() == 0) {
+            return new byte[0];
+        }
+        int numCards = 1;
+        for (int i = 0; i < cards.length(); i++) {
+            if (cards.charAt(i) == ',') {
+                numCards++;
+            }
+        }
+        byte[] encoded = new byte[numCards];
+        int start = 0;
+        for (int i = 0; i < numCards; i++) {
+            int end = indexOfComma(cards, start);
+            encoded[i] = (byte) CardAndSuit.parseIndex(cards, start, end);
+            start = end + 1;
+        }
+        return encoded;
+    }
+
+    public static List<CardAndSuit> decode(byte[] cards) {
+        byte[] nonNullCards = ArrayUtils.orEmptyArray(cards);
+        return decode(nonNullCards, 0, nonNullCards.length);
+    }
+
+    public static List<CardAndSuit> decode(byte[] cards, int from, int to) {
+        List<CardAndSuit> decoded = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            decoded.add(CardAndSuit.fromIndex(cards[i]));
+        }
+        return decoded;
+    }
+
+    public static Stream<CardAndSuit> stream(byte[] cards) {
+        byte[] nonNullCards = ArrayUtils.orEmptyArray(cards);
+        return IntStream.range(0, nonNullCards.length).mapToObj(i -> CardAndSuit.fromIndex(nonNullCards[i]));
+    }
+
+    public static String toString(byte[] cards) {
+        byte[] nonNullCards = ArrayUtils.orEmptyArray(cards);
+        StringBuilder builder = new StringBuilder(nonNullCards.length * 4);
+        for (byte card : nonNullCards) {
+            if (builder.length() != 0) {
+                builder.append(',');
+            }
+            CardAndSuit cardAndSuit = CardAndSuit.fromIndex(card);
+            builder.append(cardAndSuit.getSuit().getSymbol()).append(cardAndSuit.getCard().getValue());
+        }
+        return builder.toString();
+    }
+
+    public static int[] countCards(byte[] cards, int from, int to) {
+        int[] counts = new int[CardAndSuit.DISTINCT_CARDS];
+        for (int i = from; i < to; i++) {
+            counts[cards[i]]++;
+        }
+        return counts;
+    }
+
+    public static int countBySuit(int[] cardCounts, Suit suit) {
+        int count = 0;
+        for (Card card : Card.values()) {
+            count += cardCounts[CardAndSuit.of(card, suit).getIndex()];
+        }
+        return count;
+    }
+
+    public static int countByRank(int[] cardCounts, Card card) {
+        int count = 0;
+        for (Suit suit : Suit.values()) {
+            count += cardCounts[CardAndSuit.of(card, suit).getIndex()];
+        }
+        return count;
+    }
+
+    public static int sumValues(byte[] cards) {
+        int value = 0;
+        for (byte card : cards) {
+            value += CardAndSuit.fromIndex(card).getCard().getValue();
+        }
+        return value;
+    }
+
+    // Splits cards as if dealt around a table: hand i gets cards i, i + numHands, i + 2 * numHands, etc.
+    public static byte[][] dealAround(byte[] cards, int numHands) {
+        byte[][] hands = new byte[numHands][];
+        for (int hand = 0; hand < numHands; hand++) {
+            hands[hand] = new byte[(cards.length - hand + numHands - 1) / numHands];
+            for (int i = 0; i < hands[hand].length; i++) {
+                hands[hand][i] = cards[hand + i * numHands];
+            }
+        }
+        return hands;
+    }
+
+    public static byte[] concat(byte[] cards, byte[] moreCards) {
+        byte[] nonNullCards = ArrayUtils.orEmptyArray(cards);
+        byte[] nonNullMoreCards = ArrayUtils.orEmptyArray(moreCards);
+        byte[] result = Arrays.copyOf(nonNullCards, nonNullCards.length + nonNullMoreCards.length);
+        System.arraycopy(nonNullMoreCards, 0, result, nonNullCards.length, nonNullMoreCards.length);
+        return result;
+    }
+
+    private static int indexOfComma(CharSequence cards, int from) {
+        int i = from;
+        while (i < cards.length() && cards.charAt(i) != ',') {
+            i++;
+        }
+        return i;
+    }
 }
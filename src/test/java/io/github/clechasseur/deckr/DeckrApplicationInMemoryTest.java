@@ -0,0 +1,70 @@
+package io.github.clechasseur.deckr;
+
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.repository.PlayerRepository;
+import io.github.clechasseur.deckr.repository.ShoeChunkRepository;
+import io.github.clechasseur.deckr.repository.ShoeRepository;
+import io.github.clechasseur.deckr.service.GameService;
+import io.github.clechasseur.deckr.service.PlayerService;
+import io.github.clechasseur.deckr.service.ShoeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the same scenarios with games kept in memory by the game engine
+@TestPropertySource(properties = "deckr.engine.in-memory=true")
+public class DeckrApplicationInMemoryTest extends DeckrApplicationTest {
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private ShoeService shoeService;
+
+    @Autowired
+    private PlayerService playerService;
+
+    @Autowired
+    private GameEngine gameEngine;
+
+    @Autowired
+    private ShoeRepository shoeRepository;
+
+    @Autowired
+    private ShoeChunkRepository shoeChunkRepository;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Test
+    public void changesAreWrittenToDatabaseWhenFlushed() {
+        Game game = gameService.createGame("Flushed game");
+        Shoe shoe = shoeService.createShoe(game.getId());
+        Player player1 = playerService.createPlayer(game.getId(), "Player 1");
+        Player player2 = playerService.createPlayer(game.getId(), "Player 2");
+        shoeService.addDecksToShoe(shoe.getId(), 20);
+        shoeService.shuffle(shoe.getId(), ShuffleStrategy.OnDraw);
+        playerService.dealRound(game.getId(), 300);
+        shoeService.addDecksToShoe(shoe.getId(), 1);
+
+        gameEngine.flushAll();
+
+        Shoe savedShoe = shoeRepository.findById(shoe.getId()).orElseThrow();
+        assertThat(savedShoe.getNumCardsLeft()).isEqualTo(21 * 52 - 600);
+        byte[] savedCards = new byte[savedShoe.getNumCardsLeft()];
+        ShoeChunk.copyCards(shoeChunkRepository.findByShoeIdOrderByChunkIndex(shoe.getId()),
+                savedShoe.getNextCard(), savedShoe.getNumCards(), savedCards, 0);
+        assertThat(savedCards).isEqualTo(shoeService.getShoe(shoe.getId()).getCardsLeft());
+        assertThat(playerRepository.findById(player1.getId()).orElseThrow().getHand()).hasSize(300);
+        assertThat(playerRepository.findById(player2.getId()).orElseThrow().getHand())
+                .isEqualTo(playerService.getPlayer(player2.getId()).getHand());
+
+        gameService.deleteGame(game.getId());
+    }
+}
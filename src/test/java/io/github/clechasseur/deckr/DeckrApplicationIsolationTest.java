@@ -0,0 +1,27 @@
+package io.github.clechasseur.deckr;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the same scenarios relying only on the transactions' isolation level. Conflicting mutations are not retried,
+// so they can fail with 409 Conflict, but cards must never be lost.
+@TestPropertySource(properties = {
+        "deckr.concurrency.strategy=Isolation",
+        "deckr.commands.serialize=false"
+})
+public class DeckrApplicationIsolationTest extends DeckrApplicationOptimisticTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Override
+    protected boolean perform(MockHttpServletRequestBuilder mutation) throws Exception {
+        int status = mockMvc.perform(mutation).andReturn().getResponse().getStatus();
+        assertThat(status).isIn(HttpStatus.NO_CONTENT.value(), HttpStatus.CONFLICT.value());
+        return status == HttpStatus.NO_CONTENT.value();
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.clechasseur.deckr;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the same scenarios with connections handed out with auto-commit already disabled, as they are when serving
+// requests on virtual threads (see VirtualThreadEnvironmentPostProcessor). Changes that weren't committed are rolled
+// back when their connection goes back to the pool, so the scenarios fail if a transaction doesn't commit.
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.auto-commit=false",
+        "spring.jpa.properties.hibernate.connection.provider_disables_autocommit=true"
+})
+public class DeckrApplicationNoAutoCommitTest extends DeckrApplicationTest {
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void connectionsAreHandedOutWithoutAutoCommit() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.getAutoCommit()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.clechasseur.deckr;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.service.ShoeService;
+import io.github.clechasseur.deckr.util.CardUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the same scenarios with shoe mutations using optimistic locking, plus concurrent mutations of a shoe.
+// Subclasses run the concurrent mutations with the other strategies.
+@TestPropertySource(properties = {
+        "deckr.concurrency.strategy=Optimistic",
+        "deckr.concurrency.max-attempts=1000",
+        "deckr.commands.serialize=false"
+})
+public class DeckrApplicationOptimisticTest extends DeckrApplicationTest {
+    private static final int NUM_PLAYERS = 4;
+    private static final int DEALS_PER_PLAYER = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private ShoeService shoeService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    public void concurrentDealsDoNotLoseCards() throws Exception {
+        Game game = createGameWithShoe("Busy game");
+        List<Long> playerIds = createPlayers(game);
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_PLAYERS);
+        List<Integer> dealsDone = new ArrayList<>();
+        try {
+            List<Future<Integer>> deals = new ArrayList<>();
+            for (Long playerId : playerIds) {
+                deals.add(executor.submit(() -> {
+                    int done = 0;
+                    for (int i = 0; i < DEALS_PER_PLAYER; i++) {
+                        if (perform(put("/api/player/" + playerId + "/hand").param("numCards", "1"))) {
+                            done++;
+                        }
+                    }
+                    return done;
+                }));
+            }
+            for (Future<Integer> deal : deals) {
+                dealsDone.add(deal.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int cardsDealt = 0;
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            assertThat(getPlayer(playerIds.get(i)).getHand()).hasSize(dealsDone.get(i));
+            cardsDealt += dealsDone.get(i);
+        }
+        assertThat(getShoe(game).getCardsLeft()).hasSize(52 - cardsDealt);
+        assertEachCardIsThere(game, playerIds, 1);
+    }
+
+    @Test
+    public void shuffleDuringDealDoesNotLoseCards() throws Exception {
+        Game game = createGameWithShoe("Shuffled game");
+        List<Long> playerIds = createPlayers(game);
+        // Nothing has been dealt yet, so the shuffle only rewrites the shoe's cards, not the shoe's own row
+        duringDeal(playerIds.get(0), patch("/api/game/" + game.getId() + "/shoe"));
+
+        assertEachCardIsThere(game, playerIds, 1);
+    }
+
+    @Test
+    public void addingDecksDuringDealDoesNotLoseCards() throws Exception {
+        Game game = createGameWithShoe("Growing game");
+        List<Long> playerIds = createPlayers(game);
+        boolean added = duringDeal(playerIds.get(0), put("/api/game/" + game.getId() + "/shoe"));
+
+        assertEachCardIsThere(game, playerIds, added ? 2 : 1);
+    }
+
+    // Runs a mutation of the shoe after a deal to the player has drawn its cards, but before the deal's
+    // transaction ends. The deal waits a bit for the mutation to complete; with the Pessimistic strategy, or with
+    // commands serialized, the mutation waits for the deal instead. Returns whether the mutation was applied.
+    protected boolean duringDeal(Long playerId, MockHttpServletRequestBuilder mutation) throws Exception {
+        CountDownLatch cardsRead = new CountDownLatch(1);
+        CountDownLatch mutated = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Object cards = invocation.callRealMethod();
+            cardsRead.countDown();
+            mutated.await(250, TimeUnit.MILLISECONDS);
+            return cards;
+        }).when(shoeService).drawCards(any(), anyInt());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> deal = executor.submit(
+                    () -> perform(put("/api/player/" + playerId + "/hand").param("numCards", "1")));
+            assertThat(cardsRead.await(5, TimeUnit.SECONDS)).isTrue();
+            boolean applied = perform(mutation);
+            mutated.countDown();
+            deal.get();
+            return applied;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Mutations must succeed, retrying on conflicts if needed. Returns whether the mutation was applied.
+    protected boolean perform(MockHttpServletRequestBuilder mutation) throws Exception {
+        mockMvc.perform(mutation)
+                .andExpect(status().isNoContent());
+        return true;
+    }
+
+    // Each card of the decks added to the shoe must be either still in the shoe or in exactly one hand
+    protected void assertEachCardIsThere(Game game, List<Long> playerIds, int numDecks) throws Exception {
+        byte[] cards = getShoe(game).getCardsLeft();
+        for (Long playerId : playerIds) {
+            cards = CardUtils.concat(cards, getPlayer(playerId).getHand());
+        }
+        assertThat(cards).hasSize(52 * numDecks);
+        assertThat(CardUtils.countCards(cards, 0, cards.length)).containsOnly(numDecks);
+    }
+
+    protected Game createGameWithShoe(String name) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/game")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Game game = objectMapper.readValue(result.getResponse().getContentAsString(), Game.class);
+        mockMvc.perform(post("/api/game/" + game.getId() + "/shoe"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/game/" + game.getId() + "/shoe"))
+                .andExpect(status().isNoContent());
+        return game;
+    }
+
+    protected List<Long> createPlayers(Game game) throws Exception {
+        List<Long> playerIds = new ArrayList<>();
+        for (int i = 1; i <= NUM_PLAYERS; i++) {
+            Player newPlayer = new Player();
+            newPlayer.setGame(game);
+            newPlayer.setName("Player " + i);
+            MvcResult result = mockMvc.perform(post("/api/player")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(newPlayer)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            playerIds.add(objectMapper.readValue(result.getResponse().getContentAsString(), Player.class).getId());
+        }
+        return playerIds;
+    }
+
+    protected Player getPlayer(Long playerId) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/player/" + playerId))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), Player.class);
+    }
+
+    protected Shoe getShoe(Game game) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/game/" + game.getId() + "/shoe"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), Shoe.class);
+    }
+}
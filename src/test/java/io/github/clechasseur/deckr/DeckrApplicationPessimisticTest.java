@@ -0,0 +1,8 @@
+package io.github.clechasseur.deckr;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Runs the same scenarios with shoe rows locked while they are being modified
+@TestPropertySource(properties = "deckr.concurrency.strategy=Pessimistic")
+public class DeckrApplicationPessimisticTest extends DeckrApplicationOptimisticTest {
+}
@@ -0,0 +1,11 @@
+package io.github.clechasseur.deckr;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Runs the same scenarios with commands serialized per game, which must not need any retry
+@TestPropertySource(properties = {
+        "deckr.concurrency.max-attempts=1",
+        "deckr.commands.serialize=true"
+})
+public class DeckrApplicationSerializedTest extends DeckrApplicationOptimisticTest {
+}
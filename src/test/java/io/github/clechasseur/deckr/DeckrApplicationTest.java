@@ -1,7 +1,10 @@
 package io.github.clechasseur.deckr;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.github.clechasseur.deckr.model.CountsBySuit;
 import io.github.clechasseur.deckr.model.Game;
 import io.github.clechasseur.deckr.model.Player;
 import io.github.clechasseur.deckr.model.Shoe;
@@ -11,16 +14,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -75,13 +87,348 @@ public class DeckrApplicationTest {
                     .andExpect(status().isOk())
                     .andReturn();
             player = objectMapper.readValue(result.getResponse().getContentAsString(), Player.class);
-            assertThat(CardUtils.cardsAsList(player.getHand())).hasSize(5);
+            assertThat(player.getHand()).hasSize(5);
         }
 
+        mockMvc.perform(put("/api/game/" + gameId + "/deal")
+                        .param("cardsEach", "2"))
+                .andExpect(status().isNoContent());
+
         result = mockMvc.perform(get("/api/game/" + gameId + "/shoe"))
                 .andExpect(status().isOk())
                 .andReturn();
         Shoe shoe = objectMapper.readValue(result.getResponse().getContentAsString(), Shoe.class);
-        assertThat(CardUtils.cardsAsList(shoe.getCards())).hasSize(52 - (4 * 5));
+        assertThat(shoe.getCardsLeft()).hasSize(52 - (4 * 7));
+
+        result = mockMvc.perform(get("/api/game/" + gameId))
+                .andExpect(status().isOk())
+                .andReturn();
+        game = objectMapper.readValue(result.getResponse().getContentAsString(), Game.class);
+        assertThat(game.getShoe().getCardsLeft()).hasSize(52 - (4 * 7));
+        assertThat(game.getPlayers()).hasSize(4);
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/players"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode players = objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("_embedded").path("playerAndValueList");
+        assertThat(players).hasSize(4);
+        for (int i = 1; i < players.size(); i++) {
+            assertThat(players.get(i).path("value").asInt()).isLessThanOrEqualTo(players.get(i - 1).path("value").asInt());
+        }
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/suits"))
+                .andExpect(status().isOk())
+                .andReturn();
+        CountsBySuit counts = objectMapper.readValue(result.getResponse().getContentAsString(), CountsBySuit.class);
+        assertThat(counts.getCounts().values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(52 - (4 * 7));
+
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/cards")
+                        .param("dense", "true")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode denseCards = new ObjectMapper(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+        assertThat(denseCards.path("cards")).hasSize(52 - (4 * 7));
+        assertThat(denseCards.path("_links").path("shoe").path("href").asText()).endsWith("/api/game/" + gameId + "/shoe");
+
+        result = mockMvc.perform(get("/api/game/" + gameId)
+                        .param("view", "summary"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode summary = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(summary.path("name").asText()).isEqualTo("Test game");
+        assertThat(summary.path("playerCount").asInt()).isEqualTo(4);
+        assertThat(summary.path("shoeCardCount").asInt()).isEqualTo(52 - (4 * 7));
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe")
+                        .param("view", "summary"))
+                .andExpect(status().isOk())
+                .andReturn();
+        summary = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(summary.path("gameId").asLong()).isEqualTo(gameId);
+        assertThat(summary.path("cardCount").asInt()).isEqualTo(52 - (4 * 7));
+
+        result = mockMvc.perform(get("/api/player/" + players.get(0).path("player").path("id").asLong())
+                        .param("fields", "name,handValue"))
+                .andExpect(status().isOk())
+                .andReturn();
+        summary = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(summary.path("name").asText()).startsWith("Player ");
+        assertThat(summary.path("handValue").asInt()).isEqualTo(players.get(0).path("value").asInt());
+        assertThat(summary.has("hand")).isFalse();
+    }
+
+    @Test
+    public void iWantToPlayWithABigShoe() throws Exception {
+        MvcResult result =
+                mockMvc.perform(post("/api/game")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Big game\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Game game = objectMapper.readValue(result.getResponse().getContentAsString(), Game.class);
+        Long gameId = game.getId();
+
+        mockMvc.perform(post("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/game/" + gameId + "/shoe")
+                        .param("numDecks", "60"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(patch("/api/game/" + gameId + "/shoe")
+                        .param("strategy", "OnDraw"))
+                .andExpect(status().isNoContent());
+
+        Player newPlayer = new Player();
+        newPlayer.setGame(game);
+        newPlayer.setName("Big player");
+        result = mockMvc.perform(post("/api/player")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newPlayer)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long playerId = objectMapper.readValue(result.getResponse().getContentAsString(), Player.class).getId();
+
+        mockMvc.perform(put("/api/player/" + playerId + "/hand")
+                        .param("numCards", "1500"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/player/" + playerId + "/hand")
+                        .param("numCards", "20"))
+                .andExpect(status().isNoContent());
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Shoe shoe = objectMapper.readValue(result.getResponse().getContentAsString(), Shoe.class);
+        assertThat(shoe.getCardsLeft()).hasSize(61 * 52 - 1520);
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/suits"))
+                .andExpect(status().isOk())
+                .andReturn();
+        CountsBySuit counts = objectMapper.readValue(result.getResponse().getContentAsString(), CountsBySuit.class);
+        assertThat(counts.getCounts().values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(61 * 52 - 1520);
+
+        result = mockMvc.perform(get("/api/player/" + playerId))
+                .andExpect(status().isOk())
+                .andReturn();
+        Player player = objectMapper.readValue(result.getResponse().getContentAsString(), Player.class);
+        assertThat(player.getHand()).hasSize(1520);
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/cards"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cards = result.getResponse().getContentAsString();
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/cards")
+                        .param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(objectMapper.readTree(result.getResponse().getContentAsString()))
+                .isEqualTo(objectMapper.readTree(cards));
+
+        result = mockMvc.perform(get("/api/player/" + playerId + "/hand")
+                        .param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("_embedded").path("cardAndSuitList")).hasSize(1520);
+
+        mockMvc.perform(delete("/api/game/" + gameId))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void conditionalGetsFollowGameChanges() throws Exception {
+        MvcResult result =
+                mockMvc.perform(post("/api/game")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Cached game\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Game game = objectMapper.readValue(result.getResponse().getContentAsString(), Game.class);
+        Long gameId = game.getId();
+        mockMvc.perform(post("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isNoContent());
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/suits"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotNull();
+        mockMvc.perform(get("/api/game/" + gameId + "/shoe/suits")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        Player newPlayer = new Player();
+        newPlayer.setGame(game);
+        newPlayer.setName("Player 1");
+        result = mockMvc.perform(post("/api/player")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newPlayer)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long playerId = objectMapper.readValue(result.getResponse().getContentAsString(), Player.class).getId();
+
+        result = mockMvc.perform(get("/api/player/" + playerId + "/hand"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String handETag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/player/" + playerId + "/hand")
+                        .header(HttpHeaders.IF_NONE_MATCH, handETag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/api/game/" + gameId + "/deal")
+                        .param("cardsEach", "2"))
+                .andExpect(status().isNoContent());
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe/suits")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+        CountsBySuit counts = objectMapper.readValue(result.getResponse().getContentAsString(), CountsBySuit.class);
+        assertThat(counts.getCounts().values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(50);
+        result = mockMvc.perform(get("/api/player/" + playerId + "/hand")
+                        .header(HttpHeaders.IF_NONE_MATCH, handETag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(handETag);
+
+        // The second shuffle only moves cards around, and deleting a player must not bring back an older ETag
+        Set<String> shoeETags = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(patch("/api/game/" + gameId + "/shoe"))
+                    .andExpect(status().isNoContent());
+            result = mockMvc.perform(get("/api/game/" + gameId + "/shoe"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            assertThat(shoeETags.add(result.getResponse().getHeader(HttpHeaders.ETAG))).isTrue();
+        }
+        mockMvc.perform(delete("/api/player/" + playerId))
+                .andExpect(status().isNoContent());
+        result = mockMvc.perform(get("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(shoeETags.add(result.getResponse().getHeader(HttpHeaders.ETAG))).isTrue();
+    }
+
+    @Test
+    public void gameEventsAreStreamedToSubscribers() throws Exception {
+        MvcResult result =
+                mockMvc.perform(post("/api/game")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Watched game\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Game game = objectMapper.readValue(result.getResponse().getContentAsString(), Game.class);
+        Long gameId = game.getId();
+
+        MvcResult events = mockMvc.perform(get("/api/game/" + gameId + "/events")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/game/" + gameId + "/shoe")
+                        .param("numDecks", "2"))
+                .andExpect(status().isNoContent());
+        Player newPlayer = new Player();
+        newPlayer.setGame(game);
+        newPlayer.setName("Player 1");
+        mockMvc.perform(post("/api/player")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newPlayer)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/game/" + gameId + "/deal")
+                        .param("cardsEach", "3"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/game/" + gameId))
+                .andExpect(status().isNoContent());
+
+        // Events are sent in the background; the stream ends after the game is deleted
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!events.getResponse().getContentAsString().contains("GameDeleted")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        String stream = events.getResponse().getContentAsString();
+        assertThat(stream).containsSubsequence(
+                "event:ShoeCreated",
+                "event:DecksAdded", "\"count\":2",
+                "event:PlayerJoined", "\"name\":\"Player 1\"",
+                "event:RoundDealt", "\"count\":3",
+                "event:GameDeleted");
+    }
+
+    @Test
+    public void gameHistoryRecordsChangesAndOutlivesGame() throws Exception {
+        MvcResult result =
+                mockMvc.perform(post("/api/game")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Recorded game\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Game game = objectMapper.readValue(result.getResponse().getContentAsString(), Game.class);
+        Long gameId = game.getId();
+
+        mockMvc.perform(post("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/game/" + gameId + "/shoe"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(patch("/api/game/" + gameId + "/shoe")
+                        .param("strategy", "Secure"))
+                .andExpect(status().isNoContent());
+        Player newPlayer = new Player();
+        newPlayer.setGame(game);
+        newPlayer.setName("Player 1");
+        result = mockMvc.perform(post("/api/player")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newPlayer)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long playerId = objectMapper.readValue(result.getResponse().getContentAsString(), Player.class).getId();
+        mockMvc.perform(put("/api/player/" + playerId + "/hand")
+                        .param("numCards", "3"))
+                .andExpect(status().isNoContent());
+
+        result = mockMvc.perform(get("/api/player/" + playerId))
+                .andExpect(status().isOk())
+                .andReturn();
+        Player player = objectMapper.readValue(result.getResponse().getContentAsString(), Player.class);
+
+        mockMvc.perform(delete("/api/game/" + gameId))
+                .andExpect(status().isNoContent());
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/history"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode records = objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("_embedded").path("gameEventRecordList");
+        List<String> types = new ArrayList<>();
+        records.forEach(record -> types.add(record.path("type").asText()));
+        assertThat(types).containsExactly(
+                "ShoeCreated", "DecksAdded", "Shuffled", "PlayerJoined", "CardsDealt", "GameDeleted");
+        assertThat(records.get(2).path("strategy").asText()).isEqualTo("Secure");
+        assertThat(records.get(4).path("playerId").asLong()).isEqualTo(playerId);
+        assertThat(records.get(4).path("cards").asText()).isEqualTo(CardUtils.toString(player.getHand()));
+
+        result = mockMvc.perform(get("/api/game/" + gameId + "/history")
+                        .param("page", "1")
+                        .param("size", "4"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("_embedded").path("gameEventRecordList")).hasSize(2);
     }
 }
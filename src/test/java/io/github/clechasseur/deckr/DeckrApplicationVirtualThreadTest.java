@@ -0,0 +1,73 @@
+package io.github.clechasseur.deckr;
+
+import io.github.clechasseur.deckr.model.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the same scenarios with requests served on virtual threads, which requires Java 21 or later. The scenarios
+// go through MockMvc on the test's thread, so requests are also sent to the server itself.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = "deckr.threads.virtual=true")
+@EnabledIf("virtualThreadsAvailable")
+public class DeckrApplicationVirtualThreadTest extends DeckrApplicationTest {
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Test
+    public void serverRunsRequestsOnVirtualThreads() throws Exception {
+        Executor executor = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector()
+                .getProtocolHandler().getExecutor();
+
+        Object virtual = ((ExecutorService) executor)
+                .submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get(5, TimeUnit.SECONDS);
+        assertThat(virtual).isEqualTo(true);
+    }
+
+    // Set by VirtualThreadEnvironmentPostProcessor
+    @Test
+    public void connectionsAreHandedOutWithoutAutoCommit() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.getAutoCommit()).isFalse();
+        }
+    }
+
+    @Test
+    public void changesMadeOnVirtualThreadsAreCommitted() {
+        ResponseEntity<Game> created = restTemplate.postForEntity("/api/game", Map.of("name", "Virtual game"),
+                Game.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        ResponseEntity<Game> read = restTemplate.getForEntity("/api/game/" + created.getBody().getId(), Game.class);
+        assertThat(read.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(read.getBody().getName()).isEqualTo("Virtual game");
+    }
+}
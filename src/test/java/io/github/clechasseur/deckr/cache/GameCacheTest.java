@@ -0,0 +1,141 @@
+package io.github.clechasseur.deckr.cache;
+
+import io.github.clechasseur.deckr.model.Game;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GameCacheTest {
+    @Test
+    public void leastRecentlyUsedGameIsEvictedWhenCacheIsFull() {
+        GameCache gameCache = new GameCache(2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> createGame(id, loads));
+        gameCache.get(2L, id -> createGame(id, loads));
+        gameCache.get(1L, id -> createGame(id, loads));
+        gameCache.get(3L, id -> createGame(id, loads));
+        gameCache.get(1L, id -> createGame(id, loads));
+        gameCache.get(2L, id -> createGame(id, loads));
+
+        assertThat(loads).hasValue(4);
+        assertThat(gameCache.getStats()).isEqualTo(new CacheStats(2, 2, 4, 2));
+    }
+
+    @Test
+    public void expiredGameIsLoadedAgain() {
+        GameCache gameCache = new GameCache(2, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> createGame(id, loads));
+        gameCache.get(1L, id -> createGame(id, loads));
+
+        assertThat(loads).hasValue(2);
+        assertThat(gameCache.getStats().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidatedGameIsLoadedAgain() {
+        GameCache gameCache = new GameCache(2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> createGame(id, loads));
+        gameCache.invalidate(1L);
+        gameCache.get(1L, id -> createGame(id, loads));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void gameInvalidatedWhileLoadingIsNotCached() {
+        GameCache gameCache = new GameCache(2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> {
+            gameCache.invalidate(id);
+            return createGame(id, loads);
+        });
+
+        assertThat(gameCache.getStats().getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void gameLoadedWhileAnotherGameIsInvalidatedIsCached() {
+        GameCache gameCache = new GameCache(2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> {
+            gameCache.invalidate(2L);
+            return createGame(id, loads);
+        });
+        gameCache.get(1L, id -> createGame(id, loads));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void gameLoadedAgainAfterInvalidationWhileLoadingIsCached() {
+        GameCache gameCache = new GameCache(2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> {
+            gameCache.invalidate(id);
+            gameCache.get(id, otherId -> createGame(otherId, loads));
+            return createGame(id, loads);
+        });
+        gameCache.get(1L, id -> createGame(id, loads));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void gameChangedByTransactionIsNotCachedUntilTransactionCompletes() {
+        GameCache gameCache = new GameCache(2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gameCache.invalidate(1L);
+            gameCache.invalidate(1L);
+            gameCache.get(1L, id -> createGame(id, loads));
+            gameCache.get(1L, id -> createGame(id, loads));
+            assertThat(loads).hasValue(2);
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            gameCache.get(1L, id -> createGame(id, loads));
+            assertThat(gameCache.getStats().getSize()).isEqualTo(0);
+
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            gameCache.get(1L, id -> createGame(id, loads));
+            gameCache.get(1L, id -> createGame(id, loads));
+            assertThat(loads).hasValue(4);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void cacheWithNoSizeIsDisabled() {
+        GameCache gameCache = new GameCache(0, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        gameCache.get(1L, id -> createGame(id, loads));
+        gameCache.get(1L, id -> createGame(id, loads));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private static Game createGame(Long id, AtomicInteger loads) {
+        loads.incrementAndGet();
+        Game game = new Game();
+        game.setId(id);
+        return game;
+    }
+}
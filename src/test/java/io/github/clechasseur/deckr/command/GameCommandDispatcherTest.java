@@ -0,0 +1,127 @@
+package io.github.clechasseur.deckr.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+
+public class GameCommandDispatcherTest {
+    private final GameCommandDispatcher commandDispatcher = new GameCommandDispatcher(true);
+
+    @Test
+    public void submitReturnsResultOfCommand() {
+        assertThat(commandDispatcher.submit(() -> 1L, () -> "done")).isEqualTo("done");
+        assertThat(commandDispatcher.getQueueDepth(1L)).isZero();
+        assertThat(commandDispatcher.getQueueDepths()).isEmpty();
+    }
+
+    @Test
+    public void failedCommandsLeaveTheQueue() {
+        assertThatThrownBy(() -> commandDispatcher.run(() -> 1L, () -> {
+            throw new IllegalStateException("Oops");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(commandDispatcher.getQueueDepth(1L)).isZero();
+    }
+
+    @Test
+    public void commandsForSameGameRunOneAtATime() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            List<Future<?>> commands = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                commands.add(executor.submit(() -> commandDispatcher.run(() -> 1L, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    running.decrementAndGet();
+                })));
+            }
+            for (Future<?> command : commands) {
+                command.get();
+            }
+            assertThat(maxRunning).hasValue(1);
+            assertThat(commandDispatcher.getQueueDepths()).isEmpty();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void commandsForDifferentGamesRunInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch bothRunning = new CountDownLatch(2);
+            Runnable command = () -> {
+                bothRunning.countDown();
+                try {
+                    if (!bothRunning.await(5, TimeUnit.SECONDS)) {
+                        fail("Commands for different games did not run in parallel");
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            Future<?> first = executor.submit(() -> commandDispatcher.run(() -> 1L, command));
+            Future<?> second = executor.submit(() -> commandDispatcher.run(() -> 2L, command));
+            first.get();
+            second.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void queueDepthCountsRunningAndWaitingCommands() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> blocking = executor.submit(() -> commandDispatcher.run(() -> 1L, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            started.await();
+            Future<?> waiting = executor.submit(() -> commandDispatcher.run(() -> 1L, () -> {}));
+            Future<?> other = executor.submit(() -> commandDispatcher.run(() -> 2L, () -> {}));
+            other.get();
+            while (commandDispatcher.getQueueDepth(1L) < 2) {
+                Thread.sleep(10);
+            }
+
+            assertThat(commandDispatcher.getQueueDepths()).containsExactly(new QueueDepth(1L, 2));
+
+            release.countDown();
+            blocking.get();
+            waiting.get();
+            assertThat(commandDispatcher.getQueueDepth(1L)).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void disabledDispatcherDoesNotLookUpGame() {
+        GameCommandDispatcher disabledDispatcher = new GameCommandDispatcher(false);
+
+        String result = disabledDispatcher.submit(() -> {
+            throw new IllegalStateException("Game ID should not be looked up");
+        }, () -> "done");
+
+        assertThat(result).isEqualTo("done");
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.clechasseur.deckr.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class VirtualThreadConfigurationTest {
+    private final WebApplicationContextRunner contextRunner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(WebMvcAutoConfiguration.class))
+            .withUserConfiguration(VirtualThreadConfiguration.class);
+
+    @Mock
+    private ExecutorService executor;
+
+    @Captor
+    private ArgumentCaptor<AsyncTaskExecutor> taskExecutorArgumentCaptor;
+
+    @Test
+    public void executorRunsTasksOnVirtualThreadsOnlyWhereSupported() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThatThrownBy(VirtualThreadConfiguration::newVirtualThreadPerTaskExecutor)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Java 21");
+            return;
+        }
+
+        ExecutorService executor = VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor();
+        try {
+            Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(virtual).isEqualTo(true);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void protocolHandlerServesRequestsOnExecutor() {
+        VirtualThreadConfiguration configuration = new VirtualThreadConfiguration(executor);
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+
+        ((TomcatProtocolHandlerCustomizer<ProtocolHandler>) configuration.virtualThreadProtocolHandlerCustomizer())
+                .customize(protocolHandler);
+
+        verify(protocolHandler).setExecutor(executor);
+    }
+
+    @Test
+    public void asyncResponsesRunOnExecutor() {
+        VirtualThreadConfiguration configuration = new VirtualThreadConfiguration(executor);
+        AsyncSupportConfigurer configurer = mock(AsyncSupportConfigurer.class);
+
+        configuration.configureAsyncSupport(configurer);
+
+        verify(configurer).setTaskExecutor(taskExecutorArgumentCaptor.capture());
+        taskExecutorArgumentCaptor.getValue().execute(() -> {});
+        verify(executor).execute(any());
+    }
+
+    @Test
+    public void shutdownShutsDownExecutor() {
+        new VirtualThreadConfiguration(executor).shutdown();
+
+        verify(executor).shutdown();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        contextRunner.run(context -> assertThat(context)
+                .hasNotFailed()
+                .doesNotHaveBean(VirtualThreadConfiguration.class)
+                .doesNotHaveBean(TomcatProtocolHandlerCustomizer.class));
+    }
+
+    @Test
+    public void isEnabledByPropertyOnlyWhereSupported() {
+        contextRunner.withPropertyValues("deckr.threads.virtual=true").run(context -> {
+            if (Runtime.version().feature() < 21) {
+                assertThat(context).hasFailed();
+                assertThat(context.getStartupFailure()).hasStackTraceContaining("Virtual threads require Java 21");
+                return;
+            }
+            assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.clechasseur.deckr.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualThreadEnvironmentPostProcessorTest {
+    private final VirtualThreadEnvironmentPostProcessor postProcessor = new VirtualThreadEnvironmentPostProcessor();
+
+    @Test
+    public void withoutVirtualThreadsConnectionPoolIsLeftAlone() {
+        MockEnvironment environment = new MockEnvironment();
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getPropertySources()
+                .contains(VirtualThreadEnvironmentPostProcessor.PROPERTY_SOURCE_NAME)).isFalse();
+        assertThat(environment.getProperty("spring.datasource.hikari.auto-commit")).isNull();
+    }
+
+    @Test
+    public void withVirtualThreadsConnectionsAreAcquiredLazily() {
+        MockEnvironment environment = new MockEnvironment().withProperty("deckr.threads.virtual", "true");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty("spring.datasource.hikari.auto-commit")).isEqualTo("false");
+        assertThat(environment.getProperty(
+                "spring.jpa.properties.hibernate.connection.provider_disables_autocommit")).isEqualTo("true");
+        assertThat(environment.getProperty("spring.datasource.hikari.connection-timeout")).isEqualTo("5000");
+    }
+
+    @Test
+    public void explicitSettingsTakePrecedence() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("deckr.threads.virtual", "true")
+                .withProperty("spring.datasource.hikari.connection-timeout", "250");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty("spring.datasource.hikari.connection-timeout")).isEqualTo("250");
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.clechasseur.deckr.controller;
+
+import io.github.clechasseur.deckr.cache.CacheStats;
+import io.github.clechasseur.deckr.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(CacheController.class)
+public class CacheControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private GameService gameService;
+
+    @Test
+    public void getGameCacheStatsReturnsStats() throws Exception {
+        when(gameService.getCacheStats()).thenReturn(new CacheStats(2, 3, 1, 4));
+
+        mockMvc.perform(get("/api/cache/game"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(2))
+                .andExpect(jsonPath("$.hits").value(3))
+                .andExpect(jsonPath("$.misses").value(1))
+                .andExpect(jsonPath("$.evictions").value(4))
+                .andExpect(jsonPath("$.hitRate").value(0.75));
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.clechasseur.deckr.controller;
+
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.command.QueueDepth;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(CommandController.class)
+public class CommandControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private GameCommandDispatcher commandDispatcher;
+
+    @Test
+    public void getQueueDepthsReturnsBusyGames() throws Exception {
+        when(commandDispatcher.getQueueDepths()).thenReturn(List.of(new QueueDepth(2L, 5), new QueueDepth(1L, 1)));
+
+        mockMvc.perform(get("/api/commands/queues"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.queueDepthList[0].gameId").value(2))
+                .andExpect(jsonPath("$._embedded.queueDepthList[0].depth").value(5))
+                .andExpect(jsonPath("$._embedded.queueDepthList[0]._links.game.href").value(endsWith("/api/game/2")))
+                .andExpect(jsonPath("$._embedded.queueDepthList[1].gameId").value(1))
+                .andExpect(jsonPath("$._embedded.queueDepthList[1].depth").value(1));
+    }
+
+    @Test
+    public void getQueueDepthReturnsDepthOfGame() throws Exception {
+        when(commandDispatcher.getQueueDepth(1L)).thenReturn(3);
+
+        mockMvc.perform(get("/api/commands/queues/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.gameId").value(1))
+                .andExpect(jsonPath("$.depth").value(3));
+    }
+}
@@ -1,43 +1,81 @@
 package io.github.clechasseur.deckr.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameNotFoundException;
+import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfCardsException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfDecksException;
+import io.github.clechasseur.deckr.json.CardStreamWriter;
 import io.github.clechasseur.deckr.model.Card;
 import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.CardCount;
 import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.GameSummary;
 import io.github.clechasseur.deckr.model.Player;
 import io.github.clechasseur.deckr.model.PlayerAndValue;
 import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeSummary;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
 import io.github.clechasseur.deckr.model.Suit;
+import io.github.clechasseur.deckr.service.GameHistoryService;
 import io.github.clechasseur.deckr.service.GameService;
+import io.github.clechasseur.deckr.service.PlayerService;
 import io.github.clechasseur.deckr.service.ShoeService;
+import io.github.clechasseur.deckr.util.CardUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(GameController.class)
+@Import({FieldSelector.class, CardStreamWriter.class})
 public class GameControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -48,12 +86,24 @@ public class GameControllerTest {
     @MockBean
     private ShoeService shoeService;
 
+    @MockBean
+    private PlayerService playerService;
+
     @MockBean
     private GameModelAssembler gameModelAssembler;
 
     @MockBean
     private ShoeModelAssembler shoeModelAssembler;
 
+    @MockBean
+    private GameETags etags;
+
+    @MockBean
+    private GameEventBroadcaster eventBroadcaster;
+
+    @MockBean
+    private GameHistoryService historyService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
@@ -92,6 +142,64 @@ public class GameControllerTest {
         verify(gameModelAssembler).toModel(any(Game.class));
     }
 
+    @Test
+    public void getGameWithMatchingETagReturnsNotModifiedWithoutLoadingGame() throws Exception {
+        when(etags.checkGameNotModified(any(), eq(1L)))
+                .thenAnswer(invocation -> invocation.<WebRequest>getArgument(0).checkNotModified("\"g1-5-0\""));
+
+        mockMvc.perform(get("/api/game/1").header(HttpHeaders.IF_NONE_MATCH, "\"g1-5-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"g1-5-0\""))
+                .andExpect(content().string(""));
+
+        verify(gameService, never()).getGame(any());
+        verifyNoInteractions(gameModelAssembler);
+    }
+
+    @Test
+    public void getGameAsCborKeepsHalLinks() throws Exception {
+        Game game = new Game();
+        game.setId(1L);
+        game.setName("Test game");
+        when(gameService.getGame(1L)).thenReturn(game);
+        when(gameModelAssembler.toModel(any())).thenCallRealMethod();
+
+        MvcResult result = mockMvc.perform(get("/api/game/1")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        JsonNode json = new ObjectMapper(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+        assertThat(json.path("name").asText()).isEqualTo("Test game");
+        assertThat(json.path("_links").path("self").path("href").asText()).isEqualTo("http://localhost/api/game/1");
+        assertThat(json.path("_links").path("shoe").path("href").asText()).isEqualTo("http://localhost/api/game/1/shoe");
+    }
+
+    @Test
+    public void createGameAcceptsSmile() throws Exception {
+        when(gameService.createGame(any())).thenAnswer(invocation -> {
+            Game game = new Game();
+            game.setId(1L);
+            game.setName(invocation.getArgument(0));
+            return game;
+        });
+        when(gameModelAssembler.toModel(any())).thenCallRealMethod();
+
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        MvcResult result = mockMvc.perform(post("/api/game")
+                        .contentType("application/x-jackson-smile")
+                        .accept("application/x-jackson-smile")
+                        .content(smileMapper.writeValueAsBytes(Map.of("name", "Test game"))))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        JsonNode json = smileMapper.readTree(result.getResponse().getContentAsByteArray());
+        assertThat(json.path("name").asText()).isEqualTo("Test game");
+        assertThat(json.path("_links").path("self").path("href").asText()).isEqualTo("http://localhost/api/game/1");
+        verify(gameService).createGame("Test game");
+    }
+
     @Test
     public void getGameOnNonExistentGameReturnsNotFound() throws Exception {
         when(gameService.getGame(1L)).thenThrow(new GameNotFoundException(1L));
@@ -103,6 +211,68 @@ public class GameControllerTest {
         verifyNoInteractions(gameModelAssembler);
     }
 
+    @Test
+    public void getGameSummaryCallsService() throws Exception {
+        when(gameService.getGameSummary(1L)).thenReturn(new GameSummary(1L, "Test game", 2L, 52));
+        when(gameModelAssembler.toSummaryModel(any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/game/1").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test game"))
+                .andExpect(jsonPath("$.playerCount").value(2))
+                .andExpect(jsonPath("$.shoeCardCount").value(52))
+                .andExpect(jsonPath("$.players").doesNotExist());
+
+        verify(gameService).getGameSummary(1L);
+        verify(gameService, never()).getGame(any());
+    }
+
+    @Test
+    public void getGameFieldsFromSummaryDoesNotLoadGame() throws Exception {
+        when(gameService.getGameSummary(1L)).thenReturn(new GameSummary(1L, "Test game", 2L, 52));
+        when(gameModelAssembler.toFieldsModel(any(), any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/game/1").param("fields", "name,playerCount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test game"))
+                .andExpect(jsonPath("$.playerCount").value(2))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/game/1"));
+
+        verify(gameService).getGameSummary(1L);
+        verify(gameService, never()).getGame(any());
+    }
+
+    @Test
+    public void getGameFieldsOutsideOfSummaryLoadsGame() throws Exception {
+        Game game = new Game();
+        game.setId(1L);
+        game.setName("Test game");
+        Player player = new Player();
+        player.setId(3L);
+        player.setGame(game);
+        player.setName("Test player");
+        game.setPlayers(List.of(player));
+        when(gameService.getGame(1L)).thenReturn(game);
+        when(gameModelAssembler.toFieldsModel(any(), any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/game/1").param("fields", "players,playerCount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.players[0].name").value("Test player"))
+                .andExpect(jsonPath("$.playerCount").value(1));
+
+        verify(gameService).getGame(1L);
+        verify(gameService, never()).getGameSummary(any());
+    }
+
+    @Test
+    public void getGameFieldsWithUnknownFieldReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/game/1").param("fields", "name,colour"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(gameService, gameModelAssembler);
+    }
+
     @Test
     public void deleteGameCallsService() throws Exception {
         mockMvc.perform(delete("/api/game/1"))
@@ -125,7 +295,7 @@ public class GameControllerTest {
 
         mockMvc.perform(post("/api/game/1/shoe"))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.game.name").value("Test game"));
+                .andExpect(jsonPath("$.game").value(1));
 
         verify(shoeService).createShoe(1L);
         verify(shoeModelAssembler).toModel(any(Shoe.class));
@@ -139,81 +309,132 @@ public class GameControllerTest {
         Shoe shoe = new Shoe();
         shoe.setId(2L);
         shoe.setGame(game);
+        shoe.setCardsLeft(CardUtils.encode("H1,S13,D7"));
+        shoe.setNextCard(1);
         game.setShoe(shoe);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
         when(shoeService.getShoe(2L)).thenReturn(shoe);
         when(shoeModelAssembler.toModel(any())).thenCallRealMethod();
 
         mockMvc.perform(get("/api/game/1/shoe"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.game.name").value("Test game"));
+                .andExpect(jsonPath("$.game").value(1))
+                .andExpect(jsonPath("$.cards").value("S13,D7"))
+                .andExpect(jsonPath("$.nextCard").doesNotExist())
+                .andExpect(jsonPath("$.cardsLeft").doesNotExist());
 
-        verify(gameService).getGame(1L);
+        verify(shoeService).getShoeIdOfGame(1L);
         verify(shoeService).getShoe(2L);
         verify(shoeModelAssembler).toModel(any(Shoe.class));
     }
 
     @Test
     public void getShoeOnAGameWithoutShoeReturnsPreconditionFailed() throws Exception {
-        Game game = new Game();
-        game.setId(1L);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(shoeService.getShoeIdOfGame(1L)).thenThrow(new GameWithoutShoeException(1L));
 
         mockMvc.perform(get("/api/game/1/shoe"))
                 .andExpect(status().isPreconditionFailed());
 
-        verify(gameService).getGame(1L);
-        verifyNoInteractions(shoeService);
+        verify(shoeService).getShoeIdOfGame(1L);
+        verify(shoeService, never()).getShoe(any());
         verifyNoInteractions(shoeModelAssembler);
     }
 
     @Test
-    public void addDeckToShoeCallsService() throws Exception {
+    public void getShoeSummaryCallsService() throws Exception {
+        when(shoeService.getShoeSummaryOfGame(1L)).thenReturn(new ShoeSummary(2L, 1L, 2, ShuffleStrategy.Secure));
+        when(shoeModelAssembler.toSummaryModel(any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/game/1/shoe").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.gameId").value(1))
+                .andExpect(jsonPath("$.cardCount").value(2))
+                .andExpect(jsonPath("$.shuffleStrategy").value("Secure"))
+                .andExpect(jsonPath("$.cards").doesNotExist());
+
+        verify(shoeService).getShoeSummaryOfGame(1L);
+        verifyNoInteractions(gameService);
+    }
+
+    @Test
+    public void getShoeFieldsOutsideOfSummaryLoadsShoe() throws Exception {
         Game game = new Game();
         game.setId(1L);
-        game.setName("Test game");
         Shoe shoe = new Shoe();
         shoe.setId(2L);
         shoe.setGame(game);
+        shoe.setCardsLeft(CardUtils.encode("H1,S13,D7"));
+        shoe.setNextCard(1);
         game.setShoe(shoe);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+        when(shoeService.getShoe(2L)).thenReturn(shoe);
+        when(shoeModelAssembler.toFieldsModel(any(), any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/game/1/shoe").param("fields", "cards,cardCount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cards").value("S13,D7"))
+                .andExpect(jsonPath("$.cardCount").value(2))
+                .andExpect(jsonPath("$.game").doesNotExist());
+
+        verify(shoeService).getShoe(2L);
+        verify(shoeService, never()).getShoeSummaryOfGame(any());
+    }
+
+    @Test
+    public void addDecksToShoeCallsService() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
 
         mockMvc.perform(put("/api/game/1/shoe"))
                 .andExpect(status().isNoContent());
 
-        verify(gameService).getGame(1L);
-        verify(shoeService).addDeckToShoe(2L);
+        verify(shoeService).getShoeIdOfGame(1L);
+        verify(shoeService).addDecksToShoe(2L, 1);
+    }
+
+    @Test
+    public void addDecksToShoeWithNumDecksCallsService() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+
+        mockMvc.perform(put("/api/game/1/shoe").param("numDecks", "8"))
+                .andExpect(status().isNoContent());
+
+        verify(shoeService).addDecksToShoe(2L, 8);
+    }
+
+    @Test
+    public void addDecksToShoeWithInvalidNumDecksReturnsBadRequest() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+        doThrow(new InvalidNumberOfDecksException(0)).when(shoeService).addDecksToShoe(2L, 0);
+
+        mockMvc.perform(put("/api/game/1/shoe").param("numDecks", "0"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     public void shuffleShoeCallsService() throws Exception {
-        Game game = new Game();
-        game.setId(1L);
-        game.setName("Test game");
-        Shoe shoe = new Shoe();
-        shoe.setId(2L);
-        shoe.setGame(game);
-        game.setShoe(shoe);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
 
         mockMvc.perform(patch("/api/game/1/shoe"))
                 .andExpect(status().isNoContent());
 
-        verify(gameService).getGame(1L);
-        verify(shoeService).shuffle(2L);
+        verify(shoeService).getShoeIdOfGame(1L);
+        verify(shoeService).shuffle(2L, null);
+    }
+
+    @Test
+    public void shuffleShoeWithStrategyCallsService() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+
+        mockMvc.perform(patch("/api/game/1/shoe").param("strategy", "Secure"))
+                .andExpect(status().isNoContent());
+
+        verify(shoeService).shuffle(2L, ShuffleStrategy.Secure);
     }
 
     @Test
     public void getCountOfCardsLeftInShoeBySuitCallsService() throws Exception {
-        Game game = new Game();
-        game.setId(1L);
-        game.setName("Test game");
-        Shoe shoe = new Shoe();
-        shoe.setId(2L);
-        shoe.setGame(game);
-        game.setShoe(shoe);
         Map<Suit, Integer> suits = Map.of(Suit.Hearts, 10, Suit.Clubs, 8, Suit.Diamonds, 2);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
         when(shoeService.getCountOfCardsLeftBySuit(2L)).thenReturn(suits);
 
         mockMvc.perform(get("/api/game/1/shoe/suits"))
@@ -222,24 +443,31 @@ public class GameControllerTest {
                 .andExpect(jsonPath("$.counts.Clubs").value(8))
                 .andExpect(jsonPath("$.counts.Diamonds").value(2));
 
-        verify(gameService).getGame(1L);
+        verify(shoeService).getShoeIdOfGame(1L);
         verify(shoeService).getCountOfCardsLeftBySuit(2L);
     }
 
+    @Test
+    public void streamCardsLeftInShoeWithMatchingETagReturnsNotModified() throws Exception {
+        when(etags.checkGameNotModified(any(), eq(1L)))
+                .thenAnswer(invocation -> invocation.<WebRequest>getArgument(0).checkNotModified("\"g1-5-0\""));
+
+        mockMvc.perform(get("/api/game/1/shoe/cards").param("stream", "true")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"g1-5-0\""))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified());
+
+        verify(gameService, never()).getGame(any());
+        verifyNoInteractions(shoeService);
+    }
+
     @Test
     public void getCardsLeftInShoeCallsService() throws Exception {
-        Game game = new Game();
-        game.setId(1L);
-        game.setName("Test game");
-        Shoe shoe = new Shoe();
-        shoe.setId(2L);
-        shoe.setGame(game);
-        game.setShoe(shoe);
         List<CardAndSuit> cards = Arrays.asList(
                 new CardAndSuit(Card.Ten, Suit.Clubs),
                 new CardAndSuit(Card.Ace, Suit.Spades)
         );
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
         when(shoeService.getCardsLeft(2L)).thenReturn(cards);
 
         mockMvc.perform(get("/api/game/1/shoe/cards"))
@@ -249,10 +477,98 @@ public class GameControllerTest {
                 .andExpect(jsonPath("$._embedded.cardAndSuitList[1].card").value("Ace"))
                 .andExpect(jsonPath("$._embedded.cardAndSuitList[1].suit").value("Spades"));
 
-        verify(gameService).getGame(1L);
+        verify(shoeService).getShoeIdOfGame(1L);
         verify(shoeService).getCardsLeft(2L);
     }
 
+    @Test
+    public void streamCardsLeftInShoeCallsService() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+        when(shoeService.streamCardsLeft(2L)).thenReturn(Stream.of(
+                new CardAndSuit(Card.Ten, Suit.Clubs),
+                new CardAndSuit(Card.Ace, Suit.Spades)
+        ));
+
+        MvcResult result = mockMvc.perform(get("/api/game/1/shoe/cards").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaTypes.HAL_JSON))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[0].card").value("Ten"))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[0].suit").value("Clubs"))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[1].card").value("Ace"))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[1].suit").value("Spades"))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/game/1/shoe/cards"))
+                .andExpect(jsonPath("$._links.shoe.href").value("http://localhost/api/game/1/shoe"));
+
+        verify(shoeService).streamCardsLeft(2L);
+        verify(shoeService, never()).getCardsLeft(any());
+    }
+
+    @Test
+    public void streamCardsLeftInEmptyShoeOmitsCards() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+        when(shoeService.streamCardsLeft(2L)).thenReturn(Stream.empty());
+
+        MvcResult result = mockMvc.perform(get("/api/game/1/shoe/cards").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded").doesNotExist())
+                .andExpect(jsonPath("$._links.self.href").exists());
+    }
+
+    @Test
+    public void streamCardsLeftOnAGameWithoutShoeReturnsPreconditionFailed() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenThrow(new GameWithoutShoeException(1L));
+
+        mockMvc.perform(get("/api/game/1/shoe/cards").param("stream", "true"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(shoeService, never()).streamCardsLeft(any());
+    }
+
+    @Test
+    public void getDenseCardsLeftInShoeCallsService() throws Exception {
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+        when(shoeService.streamCardsLeft(2L)).thenReturn(Stream.of(
+                new CardAndSuit(Card.Ten, Suit.Clubs),
+                new CardAndSuit(Card.Ace, Suit.Spades)
+        ));
+
+        mockMvc.perform(get("/api/game/1/shoe/cards").param("dense", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cards[0]").value("C10"))
+                .andExpect(jsonPath("$.cards[1]").value("S1"))
+                .andExpect(jsonPath("$._links.shoe.href").value("http://localhost/api/game/1/shoe"));
+
+        verify(shoeService).streamCardsLeft(2L);
+    }
+
+    @Test
+    public void getCompactCardsLeftInShoeCallsService() throws Exception {
+        List<CardCount> counts = Arrays.asList(
+                new CardCount(new CardAndSuit(Card.Ten, Suit.Clubs), 3),
+                new CardCount(new CardAndSuit(Card.Ace, Suit.Spades), 1)
+        );
+        when(shoeService.getShoeIdOfGame(1L)).thenReturn(2L);
+        when(shoeService.getCardCountsLeft(2L)).thenReturn(counts);
+
+        mockMvc.perform(get("/api/game/1/shoe/cards").param("compact", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.cardCountList[0].card.card").value("Ten"))
+                .andExpect(jsonPath("$._embedded.cardCountList[0].card.suit").value("Clubs"))
+                .andExpect(jsonPath("$._embedded.cardCountList[0].count").value(3))
+                .andExpect(jsonPath("$._embedded.cardCountList[1].card.card").value("Ace"))
+                .andExpect(jsonPath("$._embedded.cardCountList[1].count").value(1))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/game/1/shoe/cards?compact=true"));
+
+        verify(shoeService).getShoeIdOfGame(1L);
+        verify(shoeService).getCardCountsLeft(2L);
+    }
+
     @Test
     public void getPlayersAndValuesCallsService() throws Exception {
         Player player1 = new Player();
@@ -263,7 +579,7 @@ public class GameControllerTest {
                 new PlayerAndValue(player1, 42),
                 new PlayerAndValue(player2, 23)
         );
-        when(gameService.getPlayersAndValues(1L)).thenReturn(players);
+        when(gameService.getPlayersAndValues(1L, Pageable.unpaged())).thenReturn(players);
 
         mockMvc.perform(get("/api/game/1/players"))
                 .andExpect(status().isOk())
@@ -272,6 +588,89 @@ public class GameControllerTest {
                 .andExpect(jsonPath("$._embedded.playerAndValueList[1].player.name").value("Player 2"))
                 .andExpect(jsonPath("$._embedded.playerAndValueList[1].value").value(23));
 
-        verify(gameService).getPlayersAndValues(1L);
+        verify(gameService).getPlayersAndValues(1L, Pageable.unpaged());
+    }
+
+    @Test
+    public void getPlayersAndValuesWithPageSizeRequestsAPage() throws Exception {
+        when(gameService.getPlayersAndValues(1L, PageRequest.of(2, 10))).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/api/game/1/players")
+                        .param("page", "2")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/game/1/players?page=2&size=10"));
+
+        verify(gameService).getPlayersAndValues(1L, PageRequest.of(2, 10));
+    }
+
+    @Test
+    public void getEventsSubscribesToGame() throws Exception {
+        when(gameService.getRevision(1L)).thenReturn(Optional.of(3L));
+        when(eventBroadcaster.subscribe(1L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/game/1/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(eventBroadcaster).subscribe(1L);
+    }
+
+    @Test
+    public void getEventsOfANonExistentGameReturnsNotFound() throws Exception {
+        when(gameService.getRevision(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/game/1/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(eventBroadcaster);
+    }
+
+    @Test
+    public void getHistoryReturnsRecordsOfGame() throws Exception {
+        when(historyService.getHistory(1L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new GameEventRecord(1L, GameEvent.playerJoined(10L, "Player 1"), null, Instant.now()),
+                new GameEventRecord(1L, GameEvent.cardsDealt(10L, 2), CardUtils.encode("H1,S13"), Instant.now())));
+
+        mockMvc.perform(get("/api/game/1/history").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.gameEventRecordList[0].type").value("PlayerJoined"))
+                .andExpect(jsonPath("$._embedded.gameEventRecordList[0].cards").doesNotExist())
+                .andExpect(jsonPath("$._embedded.gameEventRecordList[1].type").value("CardsDealt"))
+                .andExpect(jsonPath("$._embedded.gameEventRecordList[1].playerId").value(10))
+                .andExpect(jsonPath("$._embedded.gameEventRecordList[1].count").value(2))
+                .andExpect(jsonPath("$._embedded.gameEventRecordList[1].cards").value("H1,S13"))
+                .andExpect(jsonPath("$._links.game.href").value("http://localhost/api/game/1"));
+    }
+
+    @Test
+    public void getHistoryOfANonExistentGameReturnsNotFound() throws Exception {
+        when(historyService.getHistory(1L, Pageable.unpaged())).thenThrow(new GameNotFoundException(1L));
+
+        mockMvc.perform(get("/api/game/1/history"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void dealRoundCallsService() throws Exception {
+        mockMvc.perform(put("/api/game/1/deal").param("cardsEach", "2"))
+                .andExpect(status().isNoContent());
+
+        verify(playerService).dealRound(1L, 2);
+    }
+
+    @Test
+    public void dealRoundWithNegativeCardsEachReturnsBadRequest() throws Exception {
+        doThrow(new InvalidNumberOfCardsException(-1)).when(playerService).dealRound(1L, -1);
+
+        mockMvc.perform(put("/api/game/1/deal").param("cardsEach", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void dealRoundWithoutCardsEachReturnsBadRequest() throws Exception {
+        mockMvc.perform(put("/api/game/1/deal"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(playerService);
     }
 }
@@ -0,0 +1,89 @@
+package io.github.clechasseur.deckr.controller;
+
+import io.github.clechasseur.deckr.service.GameService;
+import io.github.clechasseur.deckr.service.PlayerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GameETagsTest {
+    @Mock
+    private GameService gameService;
+
+    @Mock
+    private PlayerService playerService;
+
+    @InjectMocks
+    private GameETags etags;
+
+    @Test
+    public void matchingETagIsNotModified() {
+        when(gameService.getRevision(1L)).thenReturn(Optional.of(5L));
+
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        assertThat(etags.checkGameNotModified(webRequest(null, null, firstResponse), 1L)).isFalse();
+        String eTag = firstResponse.getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("\"g1-5-");
+
+        MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+        assertThat(etags.checkGameNotModified(webRequest(eTag, null, secondResponse), 1L)).isTrue();
+        assertThat(secondResponse.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+    }
+
+    @Test
+    public void newRevisionIsModified() {
+        when(gameService.getRevision(1L)).thenReturn(Optional.of(6L));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(etags.checkGameNotModified(webRequest("\"g1-5-0\"", null, response), 1L)).isFalse();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).startsWith("\"g1-6-");
+    }
+
+    @Test
+    public void eachAcceptedFormatHasItsOwnETag() {
+        when(playerService.getGameRevision(3L)).thenReturn(Optional.of(5L));
+
+        MockHttpServletResponse jsonResponse = new MockHttpServletResponse();
+        etags.checkPlayerNotModified(webRequest(null, MediaTypes.HAL_JSON_VALUE, jsonResponse), 3L);
+        MockHttpServletResponse cborResponse = new MockHttpServletResponse();
+        etags.checkPlayerNotModified(webRequest(null, "application/cbor", cborResponse), 3L);
+
+        assertThat(jsonResponse.getHeader(HttpHeaders.ETAG)).startsWith("\"p3-5-");
+        assertThat(cborResponse.getHeader(HttpHeaders.ETAG)).startsWith("\"p3-5-");
+        assertThat(jsonResponse.getHeader(HttpHeaders.ETAG)).isNotEqualTo(cborResponse.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void missingGameIsLeftToTheHandler() {
+        when(gameService.getRevision(1L)).thenReturn(Optional.empty());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(etags.checkGameNotModified(webRequest("\"g1-5-0\"", null, response), 1L)).isFalse();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+    }
+
+    private static ServletWebRequest webRequest(String ifNoneMatch, String accept, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/game/1");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (accept != null) {
+            request.addHeader(HttpHeaders.ACCEPT, accept);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
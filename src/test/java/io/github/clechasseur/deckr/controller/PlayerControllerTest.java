@@ -2,10 +2,12 @@ package io.github.clechasseur.deckr.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.clechasseur.deckr.exception.PlayerNotFoundException;
+import io.github.clechasseur.deckr.json.CardStreamWriter;
 import io.github.clechasseur.deckr.model.Card;
 import io.github.clechasseur.deckr.model.CardAndSuit;
 import io.github.clechasseur.deckr.model.Game;
 import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.PlayerSummary;
 import io.github.clechasseur.deckr.model.Suit;
 import io.github.clechasseur.deckr.service.PlayerService;
 import org.junit.jupiter.api.Test;
@@ -13,27 +15,38 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(PlayerController.class)
+@Import({FieldSelector.class, CardStreamWriter.class})
 public class PlayerControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -44,6 +57,9 @@ public class PlayerControllerTest {
     @MockBean
     private PlayerModelAssembler playerModelAssembler;
 
+    @MockBean
+    private GameETags etags;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
@@ -73,12 +89,34 @@ public class PlayerControllerTest {
                         .content(objectMapper.writeValueAsString(player)))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.name").value("Player 1"))
-                .andExpect(jsonPath("$.game.name").value("Test game"));
+                .andExpect(jsonPath("$.game").value(1));
 
         verify(playerService).createPlayer(1L, "Player 1");
         verify(playerModelAssembler).toModel(any(Player.class));
     }
 
+    @Test
+    public void createPlayerAcceptsGameAsObject() throws Exception {
+        when(playerService.createPlayer(any(), any())).thenAnswer(invocation -> {
+            Player player = new Player();
+            player.setId(3L);
+            player.setName(invocation.getArgument(1));
+            Game game = new Game();
+            game.setId(invocation.getArgument(0));
+            player.setGame(game);
+            return player;
+        });
+        when(playerModelAssembler.toModel(any())).thenCallRealMethod();
+
+        mockMvc.perform(post("/api/player")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Player 1\",\"game\":{\"id\":1}}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.game").value(1));
+
+        verify(playerService).createPlayer(1L, "Player 1");
+    }
+
     @Test
     public void createPlayerWithoutGameReturnsBadRequest() throws Exception {
         Player player = new Player();
@@ -118,6 +156,45 @@ public class PlayerControllerTest {
         verifyNoInteractions(playerModelAssembler);
     }
 
+    @Test
+    public void getPlayerSummaryCallsService() throws Exception {
+        when(playerService.getPlayerSummary(3L)).thenReturn(new PlayerSummary(3L, 1L, "Test player", 2, 17));
+        when(playerModelAssembler.toSummaryModel(any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/player/3").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.gameId").value(1))
+                .andExpect(jsonPath("$.name").value("Test player"))
+                .andExpect(jsonPath("$.cardCount").value(2))
+                .andExpect(jsonPath("$.handValue").value(17))
+                .andExpect(jsonPath("$.hand").doesNotExist());
+
+        verify(playerService).getPlayerSummary(3L);
+        verify(playerService, never()).getPlayer(any());
+    }
+
+    @Test
+    public void getPlayerFieldsFromSummaryDoesNotLoadPlayer() throws Exception {
+        when(playerService.getPlayerSummary(3L)).thenReturn(new PlayerSummary(3L, 1L, "Test player", 2, 17));
+        when(playerModelAssembler.toFieldsModel(any(), any())).thenCallRealMethod();
+
+        mockMvc.perform(get("/api/player/3").param("fields", "handValue"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.handValue").value(17))
+                .andExpect(jsonPath("$.name").doesNotExist());
+
+        verify(playerService).getPlayerSummary(3L);
+        verify(playerService, never()).getPlayer(any());
+    }
+
+    @Test
+    public void getPlayerFieldsWithUnknownFieldReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/player/3").param("fields", "score"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(playerService, playerModelAssembler);
+    }
+
     @Test
     public void deletePlayerCallsService() throws Exception {
         mockMvc.perform(delete("/api/player/3"))
@@ -144,6 +221,57 @@ public class PlayerControllerTest {
         verify(playerService).getCards(3L);
     }
 
+    @Test
+    public void getCardsWithMatchingETagReturnsNotModifiedWithoutLoadingPlayer() throws Exception {
+        when(etags.checkPlayerNotModified(any(), eq(3L)))
+                .thenAnswer(invocation -> invocation.<WebRequest>getArgument(0).checkNotModified("\"p3-5-0\""));
+
+        mockMvc.perform(get("/api/player/3/hand").header(HttpHeaders.IF_NONE_MATCH, "\"p3-5-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"p3-5-0\""));
+
+        verifyNoInteractions(playerService);
+    }
+
+    @Test
+    public void streamCardsCallsService() throws Exception {
+        when(playerService.streamCards(3L)).thenReturn(Stream.of(
+                new CardAndSuit(Card.King, Suit.Diamonds),
+                new CardAndSuit(Card.Seven, Suit.Spades)
+        ));
+
+        MvcResult result = mockMvc.perform(get("/api/player/3/hand").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[0].card").value("King"))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[0].suit").value("Diamonds"))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[1].card").value("Seven"))
+                .andExpect(jsonPath("$._embedded.cardAndSuitList[1].suit").value("Spades"))
+                .andExpect(jsonPath("$._links.player.href").value("http://localhost/api/player/3"));
+
+        verify(playerService).streamCards(3L);
+        verify(playerService, never()).getCards(any());
+    }
+
+    @Test
+    public void getDenseCardsCallsService() throws Exception {
+        when(playerService.streamCards(3L)).thenReturn(Stream.of(
+                new CardAndSuit(Card.King, Suit.Diamonds),
+                new CardAndSuit(Card.Seven, Suit.Spades)
+        ));
+
+        mockMvc.perform(get("/api/player/3/hand").param("dense", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cards[0]").value("D13"))
+                .andExpect(jsonPath("$.cards[1]").value("S7"))
+                .andExpect(jsonPath("$._links.player.href").value("http://localhost/api/player/3"));
+
+        verify(playerService).streamCards(3L);
+        verify(playerService, never()).getCards(any());
+    }
+
     @Test
     public void dealCallsService() throws Exception {
         mockMvc.perform(put("/api/player/3/hand")
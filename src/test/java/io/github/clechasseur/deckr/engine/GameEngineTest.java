@@ -0,0 +1,389 @@
+package io.github.clechasseur.deckr.engine;
+
+import io.github.clechasseur.deckr.event.GameEventType;
+import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.model.GameEventRecord;
+import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.service.ShuffleService;
+import io.github.clechasseur.deckr.util.CardUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GameEngineTest {
+    @Mock
+    private GameEngineStore store;
+
+    @Mock
+    private ShuffleService shuffleService;
+
+    @Captor
+    private ArgumentCaptor<List<GameEventRecord>> eventsArgumentCaptor;
+
+    private GameEngine gameEngine;
+
+    @BeforeEach
+    public void setUp() {
+        gameEngine = new GameEngine(store, shuffleService, true, 100, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        gameEngine.shutdown();
+    }
+
+    @Test
+    public void dealRoundOnlyChangesGameInMemory() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3,S4,S5", 10L, 11L));
+
+        assertThat(gameEngine.dealRound(1L, 2)).isEqualTo(4);
+
+        Game game = gameEngine.getGame(1L);
+        assertThat(game.getShoe().getCardsLeft()).isEqualTo(CardUtils.encode("S5"));
+        assertThat(game.getPlayers().get(0).getHand()).isEqualTo(CardUtils.encode("S1,S3"));
+        assertThat(game.getPlayers().get(1).getHand()).isEqualTo(CardUtils.encode("S2,S4"));
+        assertThat(game.getPlayers().get(1).getHandValue()).isEqualTo(6);
+        verify(store, times(1)).load(1L);
+        verify(store, never()).save(any());
+    }
+
+    @Test
+    public void readsShareTheSameGameUntilItChanges() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+
+        Game game = gameEngine.getGame(1L);
+        assertThat(gameEngine.getGame(1L)).isSameAs(game);
+        assertThat(gameEngine.getShoe(1L)).isSameAs(game.getShoe());
+        gameEngine.dealRound(1L, 1);
+        Game changedGame = gameEngine.getGame(1L);
+
+        assertThat(changedGame).isNotSameAs(game);
+        assertThat(changedGame.getPlayers().get(0).getHand()).isEqualTo(CardUtils.encode("S1"));
+        assertThat(game.getPlayers().get(0).getHand()).isEmpty();
+    }
+
+    @Test
+    public void flushAllSavesChangedChunksAndPlayers() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L, 11L));
+        when(store.findGameIdOfPlayer(10L)).thenReturn(1L);
+
+        gameEngine.dealCards(10L, 2);
+        gameEngine.flushAll();
+
+        ArgumentCaptor<GameSnapshot> snapshotArgumentCaptor = ArgumentCaptor.forClass(GameSnapshot.class);
+        verify(store).save(snapshotArgumentCaptor.capture());
+        GameSnapshot snapshot = snapshotArgumentCaptor.getValue();
+        assertThat(snapshot.getShoe().getNextCard()).isEqualTo(2);
+        assertThat(snapshot.getShoe().getChunks()).isEmpty();
+        assertThat(snapshot.getPlayers()).hasSize(1);
+        assertThat(snapshot.getPlayers().get(0).getId()).isEqualTo(10L);
+        assertThat(snapshot.getPlayers().get(0).getHand()).isEqualTo(CardUtils.encode("S1,S2"));
+
+        gameEngine.flushAll();
+
+        verify(store, times(1)).save(any());
+    }
+
+    @Test
+    public void mutationsIncrementRevisionAndFlushSavesIt() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+
+        assertThat(gameEngine.getRevision(1L)).isEqualTo(0L);
+        gameEngine.dealRound(1L, 1);
+        assertThat(gameEngine.getRevisionOfPlayer(10L)).isEqualTo(1L);
+        gameEngine.flushAll();
+
+        ArgumentCaptor<GameSnapshot> snapshotArgumentCaptor = ArgumentCaptor.forClass(GameSnapshot.class);
+        verify(store).save(snapshotArgumentCaptor.capture());
+        assertThat(snapshotArgumentCaptor.getValue().getRevision()).isEqualTo(1L);
+    }
+
+    @Test
+    public void dealsAreRecordedInHistoryOnFlush() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3,S4,S5", 10L, 11L));
+
+        gameEngine.dealRound(1L, 2);
+        gameEngine.flushAll();
+
+        ArgumentCaptor<GameSnapshot> snapshotArgumentCaptor = ArgumentCaptor.forClass(GameSnapshot.class);
+        verify(store).save(snapshotArgumentCaptor.capture());
+        GameSnapshot snapshot = snapshotArgumentCaptor.getValue();
+        assertThat(snapshot.getEvents()).extracting(GameEventRecord::getType, GameEventRecord::getPlayerId)
+                .containsExactly(tuple(GameEventType.CardsDealt, 10L), tuple(GameEventType.CardsDealt, 11L));
+        assertThat(snapshot.getEvents().get(1).getCards()).isEqualTo(CardUtils.encode("S2,S4"));
+    }
+
+    @Test
+    public void pendingHistoryIsSavedWhenGameIsDeleted() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+        when(store.findGameIdOfShoe(1L)).thenReturn(1L);
+
+        gameEngine.shuffle(1L, ShuffleStrategy.Secure);
+        gameEngine.gameDeleted(1L);
+
+        verify(store).saveEvents(eventsArgumentCaptor.capture());
+        assertThat(eventsArgumentCaptor.getValue()).extracting(GameEventRecord::getType, GameEventRecord::getStrategy)
+                .containsExactly(tuple(GameEventType.Shuffled, ShuffleStrategy.Secure));
+        verify(store, never()).save(any());
+    }
+
+    @Test
+    public void dealCardsReturnsNumberOfCardsDealt() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2", 10L));
+        when(store.findGameIdOfPlayer(10L)).thenReturn(1L);
+
+        assertThat(gameEngine.dealCards(10L, 5)).isEqualTo(2);
+        assertThat(gameEngine.dealCards(10L, 1)).isZero();
+    }
+
+    @Test
+    public void shuffleReturnsStrategyUsed() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2", 10L));
+        when(store.findGameIdOfShoe(1L)).thenReturn(1L);
+        when(shuffleService.getDefaultStrategy()).thenReturn(ShuffleStrategy.InPlace);
+
+        assertThat(gameEngine.shuffle(1L, null)).isEqualTo(ShuffleStrategy.InPlace);
+    }
+
+    @Test
+    public void shuffleRewritesAllChunksOnNextFlush() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+        when(store.findGameIdOfPlayer(10L)).thenReturn(1L);
+
+        gameEngine.dealCards(10L, 1);
+        gameEngine.shuffle(1L, ShuffleStrategy.Splittable);
+        gameEngine.flushAll();
+
+        verify(shuffleService).shuffle(any(), any());
+        ArgumentCaptor<GameSnapshot> snapshotArgumentCaptor = ArgumentCaptor.forClass(GameSnapshot.class);
+        verify(store).save(snapshotArgumentCaptor.capture());
+        GameSnapshot.ShoeSnapshot shoeSnapshot = snapshotArgumentCaptor.getValue().getShoe();
+        assertThat(shoeSnapshot.getNumCards()).isEqualTo(2);
+        assertThat(shoeSnapshot.getNextCard()).isEqualTo(0);
+        assertThat(shoeSnapshot.getShuffleStrategy()).isEqualTo(ShuffleStrategy.Splittable);
+        assertThat(shoeSnapshot.getChunks()).containsOnlyKeys(0);
+        assertThat(shoeSnapshot.getChunks().get(0)).isEqualTo(CardUtils.encode("S2,S3"));
+    }
+
+    @Test
+    public void flushIsStartedInBackgroundAfterEnoughMutations() {
+        gameEngine = new GameEngine(store, shuffleService, true, 2, Duration.ofMinutes(10));
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+
+        gameEngine.dealRound(1L, 1);
+        verify(store, never()).save(any());
+        gameEngine.dealRound(1L, 1);
+
+        verify(store, timeout(5000)).save(any());
+    }
+
+    @Test
+    public void failedFlushIsRetriedOnNextFlush() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+        doThrow(new IllegalStateException("Database is down")).doNothing().when(store).save(any());
+
+        gameEngine.dealRound(1L, 1);
+        gameEngine.flushAll();
+        gameEngine.flushAll();
+
+        ArgumentCaptor<GameSnapshot> snapshotArgumentCaptor = ArgumentCaptor.forClass(GameSnapshot.class);
+        verify(store, times(2)).save(snapshotArgumentCaptor.capture());
+        assertThat(snapshotArgumentCaptor.getAllValues().get(1).getPlayers()).hasSize(1);
+    }
+
+    @Test
+    public void deletedGameIsReloadedOnNextAccess() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+
+        gameEngine.getGame(1L);
+        gameEngine.gameDeleted(1L);
+        gameEngine.getGame(1L);
+
+        verify(store, times(2)).load(1L);
+    }
+
+    @Test
+    public void gameIsDeletedOnceSnapshotBeingSavedIsSaved() throws InterruptedException {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch saved = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            saving.countDown();
+            saved.await();
+            return null;
+        }).when(store).save(any());
+
+        gameEngine.dealRound(1L, 1);
+        Thread flushThread = new Thread(gameEngine::flushAll);
+        flushThread.start();
+        saving.await();
+        Thread deleteThread = new Thread(() -> gameEngine.gameDeleted(1L));
+        deleteThread.start();
+        deleteThread.join(200);
+
+        assertThat(deleteThread.isAlive()).isTrue();
+        verify(store, never()).saveEvents(any());
+        saved.countDown();
+        deleteThread.join();
+        flushThread.join();
+        verify(store).saveEvents(any());
+    }
+
+    @Test
+    public void playerCreatedInATransactionJoinsLiveGameWhenTransactionCommits() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+        gameEngine.getGame(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gameEngine.playerCreated(createPlayer(11L));
+            assertThat(gameEngine.getGame(1L).getPlayers()).extracting(Player::getId).containsExactly(10L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(gameEngine.getGame(1L).getPlayers()).extracting(Player::getId).containsExactly(10L, 11L);
+    }
+
+    @Test
+    public void shoeCreatedInARolledBackTransactionIsNotAddedToLiveGame() {
+        when(store.load(1L)).thenAnswer(invocation -> new LiveGame(1L, "Test game", 0L));
+        gameEngine.getGame(1L);
+        Shoe shoe = new Shoe();
+        shoe.setId(1L);
+        shoe.setGame(createGame());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gameEngine.shoeCreated(shoe);
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(gameEngine.getGame(1L).getShoe()).isNull();
+    }
+
+    @Test
+    public void playerDeletedInATransactionLeavesLiveGameWhenTransactionCommits() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L, 11L));
+        gameEngine.getGame(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gameEngine.playerDeleted(11L);
+            assertThat(gameEngine.getGame(1L).getPlayers()).extracting(Player::getId).containsExactly(10L, 11L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(gameEngine.getGame(1L).getPlayers()).extracting(Player::getId).containsExactly(10L);
+    }
+
+    @Test
+    public void gameDeletedInARolledBackTransactionStaysLiveWithItsHistory() {
+        when(store.load(1L)).thenAnswer(invocation -> createLiveGame("S1,S2,S3", 10L));
+        when(store.findGameIdOfShoe(1L)).thenReturn(1L);
+        gameEngine.shuffle(1L, ShuffleStrategy.Secure);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gameEngine.gameDeleted(1L);
+            verify(store).saveEvents(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        gameEngine.flushAll();
+
+        ArgumentCaptor<GameSnapshot> snapshotArgumentCaptor = ArgumentCaptor.forClass(GameSnapshot.class);
+        verify(store).save(snapshotArgumentCaptor.capture());
+        assertThat(snapshotArgumentCaptor.getValue().getEvents()).extracting(GameEventRecord::getType)
+                .containsExactly(GameEventType.Shuffled);
+        verify(store, times(1)).load(1L);
+    }
+
+    @Test
+    public void dealRoundInAGameWithNoShoeThrowsException() {
+        when(store.load(1L)).thenAnswer(invocation -> new LiveGame(1L, "Test game", 0L));
+
+        assertThatThrownBy(() -> gameEngine.dealRound(1L, 1))
+                .isInstanceOf(GameWithoutShoeException.class);
+    }
+
+    @Test
+    public void cardsAddedToAPartialChunkRewriteThatChunk() {
+        LiveShoe shoe = new LiveShoe(1L);
+        byte[] cards = new byte[ShoeChunk.SIZE + 10];
+        shoe.append(cards);
+        shoe.takeSnapshot();
+
+        shoe.draw(ShoeChunk.SIZE + 5);
+        shoe.append(CardUtils.encode("S1,S2"));
+        GameSnapshot.ShoeSnapshot snapshot = shoe.takeSnapshot();
+
+        assertThat(snapshot.getNumCards()).isEqualTo(ShoeChunk.SIZE + 12);
+        assertThat(snapshot.getChunks()).containsOnlyKeys(1);
+        assertThat(snapshot.getChunks().get(1)).hasSize(12);
+        assertThat(shoe.getCardsLeft()).hasSize(7);
+    }
+
+    private static LiveGame createLiveGame(String cards, Long... playerIds) {
+        Game game = createGame();
+        Shoe shoe = new Shoe();
+        shoe.setId(1L);
+        shoe.setGame(game);
+        shoe.setCardsLeft(CardUtils.encode(cards));
+        LiveGame liveGame = new LiveGame(1L, "Test game", 0L);
+        liveGame.setShoe(LiveShoe.load(shoe, shoe.getChunks()));
+        Arrays.stream(playerIds).forEach(playerId -> liveGame.addPlayer(new LivePlayer(createPlayer(playerId))));
+        return liveGame;
+    }
+
+    private static Game createGame() {
+        Game game = new Game();
+        game.setId(1L);
+        return game;
+    }
+
+    private static Player createPlayer(Long playerId) {
+        Player player = new Player();
+        player.setId(playerId);
+        player.setGame(createGame());
+        player.setName("Player " + playerId);
+        return player;
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.clechasseur.deckr.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class GameEventBroadcasterTest {
+    private ObjectMapper objectMapper;
+    private GameEventBroadcaster eventBroadcaster;
+
+    @BeforeEach
+    public void setUp() {
+        objectMapper = spy(new ObjectMapper());
+        eventBroadcaster = new GameEventBroadcaster(objectMapper, 16, Duration.ofMinutes(1), 1);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        eventBroadcaster.shutdown();
+    }
+
+    @Test
+    public void publishWithoutSubscribersDoesNotLookUpGame() {
+        eventBroadcaster.publish(() -> {
+            throw new AssertionError("Game ID should not be looked up");
+        }, GameEvent.roundDealt(2));
+    }
+
+    @Test
+    public void eventIsSerializedOnceForAllSubscribers() throws Exception {
+        eventBroadcaster.subscribe(1L);
+        eventBroadcaster.subscribe(1L);
+        eventBroadcaster.subscribe(2L);
+
+        eventBroadcaster.publish(() -> 1L, GameEvent.cardsDealt(3L, 5));
+
+        assertThat(eventBroadcaster.getSubscriberCount(1L)).isEqualTo(2);
+        verify(objectMapper, times(1)).writeValueAsString(any());
+    }
+
+    @Test
+    public void subscribersAreRemovedWhenGameIsDeleted() {
+        eventBroadcaster.subscribe(1L);
+        eventBroadcaster.subscribe(2L);
+
+        eventBroadcaster.publish(() -> 1L, GameEvent.gameDeleted());
+
+        assertThat(eventBroadcaster.getSubscriberCount(1L)).isEqualTo(0);
+        assertThat(eventBroadcaster.getSubscriberCount(2L)).isEqualTo(1);
+    }
+}
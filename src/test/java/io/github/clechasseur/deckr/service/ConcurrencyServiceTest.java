@@ -0,0 +1,100 @@
+package io.github.clechasseur.deckr.service;
+
+import io.github.clechasseur.deckr.model.ConcurrencyStrategy;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+public class ConcurrencyServiceTest {
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    public void isolationStrategyUsesRepeatableRead() {
+        ConcurrencyService concurrencyService = new ConcurrencyService(transactionManager,
+                ConcurrencyStrategy.Isolation, 3);
+
+        concurrencyService.executeMutation(() -> {});
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
+    }
+
+    @Test
+    public void optimisticStrategyRetriesConflictingMutations() {
+        ConcurrencyService concurrencyService = new ConcurrencyService(transactionManager,
+                ConcurrencyStrategy.Optimistic, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        concurrencyService.executeMutation(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Shoe", 1L);
+            }
+        });
+
+        assertThat(attempts).hasValue(3);
+        verify(transactionManager, times(3)).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_READ_COMMITTED));
+    }
+
+    @Test
+    public void optimisticStrategyGivesUpAfterMaxAttempts() {
+        ConcurrencyService concurrencyService = new ConcurrencyService(transactionManager,
+                ConcurrencyStrategy.Optimistic, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> concurrencyService.executeMutation(() -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Shoe", 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    public void pessimisticStrategyDoesNotRetry() {
+        ConcurrencyService concurrencyService = new ConcurrencyService(transactionManager,
+                ConcurrencyStrategy.Pessimistic, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> concurrencyService.executeMutation(() -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Shoe", 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    public void mutationJoinsExistingTransaction() {
+        ConcurrencyService concurrencyService = new ConcurrencyService(transactionManager,
+                ConcurrencyStrategy.Optimistic, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            concurrencyService.executeMutation(attempts::incrementAndGet);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertThat(attempts).hasValue(1);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    public void invalidMaxAttemptsThrowsException() {
+        assertThatThrownBy(() -> new ConcurrencyService(transactionManager, ConcurrencyStrategy.Optimistic, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(transactionManager);
+    }
+}
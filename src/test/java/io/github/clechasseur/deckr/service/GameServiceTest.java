@@ -1,18 +1,33 @@
 package io.github.clechasseur.deckr.service;
 
+import io.github.clechasseur.deckr.cache.GameCache;
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameNotFoundException;
+import io.github.clechasseur.deckr.model.ConcurrencyStrategy;
 import io.github.clechasseur.deckr.model.Game;
+import io.github.clechasseur.deckr.model.GameSummary;
 import io.github.clechasseur.deckr.model.Player;
 import io.github.clechasseur.deckr.model.PlayerAndValue;
 import io.github.clechasseur.deckr.repository.GameRepository;
+import io.github.clechasseur.deckr.repository.PlayerRepository;
+import io.github.clechasseur.deckr.repository.ShoeChunkRepository;
+import io.github.clechasseur.deckr.repository.ShoeRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -20,9 +35,14 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +53,34 @@ public class GameServiceTest {
     @Mock
     private GameRepository gameRepository;
 
+    @Mock
+    private PlayerRepository playerRepository;
+
+    @Mock
+    private ShoeRepository shoeRepository;
+
+    @Mock
+    private ShoeChunkRepository shoeChunkRepository;
+
+    @Mock
+    private GameEngine gameEngine;
+
+    @Mock
+    private GameEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private GameHistoryService historyService;
+
+    @Spy
+    private GameCache gameCache = new GameCache(10, Duration.ofMinutes(1));
+
+    @Spy
+    private GameCommandDispatcher commandDispatcher = new GameCommandDispatcher(false);
+
+    @Spy
+    private ConcurrencyService concurrencyService = new ConcurrencyService(mock(PlatformTransactionManager.class),
+            ConcurrencyStrategy.Isolation, 1);
+
     @Test
     public void createGameReturnsNewGame() {
         when(gameRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
@@ -46,24 +94,113 @@ public class GameServiceTest {
 
     @Test
     public void getGameWithNoGameThrowsException() {
-        when(gameRepository.findById(any())).thenReturn(Optional.empty());
+        when(gameRepository.findWithPlayersById(any())).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> gameService.getGame(1L)).isInstanceOf(GameNotFoundException.class);
-        verify(gameRepository).findById(1L);
+        verify(gameRepository).findWithPlayersById(1L);
     }
 
     @Test
     public void getGameWithAGameReturnsGame() {
         Game game = mock(Game.class);
-        when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        when(gameRepository.findWithPlayersById(1L)).thenReturn(Optional.of(game));
 
         Game actualGame = gameService.getGame(1L);
 
         assertThat(actualGame).isNotNull();
         assertThat(actualGame).isEqualTo(game);
+        verify(gameRepository).findWithPlayersById(1L);
+    }
+
+    @Test
+    public void getGameTwiceOnlyReadsGameOnce() {
+        Game game = mock(Game.class);
+        when(gameRepository.findWithPlayersById(1L)).thenReturn(Optional.of(game));
+
+        gameService.getGame(1L);
+        Game actualGame = gameService.getGame(1L);
+
+        assertThat(actualGame).isSameAs(game);
+        verify(gameRepository, times(1)).findWithPlayersById(1L);
+        assertThat(gameService.getCacheStats().getHits()).isEqualTo(1);
+        assertThat(gameService.getCacheStats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void getGameSummaryDoesNotLoadGame() {
+        GameSummary summary = new GameSummary(1L, "Test game", 2L, 52);
+        when(gameRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+
+        assertThat(gameService.getGameSummary(1L)).isEqualTo(summary);
+        verify(gameRepository).findSummaryById(1L);
+        verify(gameRepository, never()).findWithPlayersById(any());
+    }
+
+    @Test
+    public void getGameSummaryWithNoGameThrowsException() {
+        when(gameRepository.findSummaryById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> gameService.getGameSummary(1L)).isInstanceOf(GameNotFoundException.class);
+    }
+
+    @Test
+    public void getGameForUpdateBypassesCache() {
+        Game game = mock(Game.class);
+        when(gameRepository.findWithPlayersById(1L)).thenReturn(Optional.of(game));
+        when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+
+        gameService.getGame(1L);
+        gameService.getGameForUpdate(1L);
+
+        verify(gameRepository).findWithPlayersById(1L);
         verify(gameRepository).findById(1L);
     }
 
+    @Test
+    public void getGameWithPlayersForUpdateLoadsPlayers() {
+        Game game = mock(Game.class);
+        when(gameRepository.findWithPlayersById(1L)).thenReturn(Optional.of(game));
+
+        Game actualGame = gameService.getGameWithPlayersForUpdate(1L);
+
+        assertThat(actualGame).isSameAs(game);
+        verify(gameRepository, never()).findById(any());
+    }
+
+    @Test
+    public void updateGameInvalidatesCachedGame() {
+        Game game = new Game();
+        game.setId(1L);
+        when(gameRepository.findWithPlayersById(1L)).thenReturn(Optional.of(game));
+        when(gameRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        gameService.getGame(1L);
+        gameService.updateGame(game);
+        gameService.getGame(1L);
+
+        verify(gameRepository, times(2)).findWithPlayersById(1L);
+        verify(gameCache).invalidate(1L);
+        verify(gameRepository).incrementRevision(1L, 1L);
+    }
+
+    @Test
+    public void invalidateGameDoesNotUpdateGame() {
+        gameService.invalidateGame(1L);
+
+        verify(gameCache).invalidate(1L);
+        verifyNoInteractions(gameRepository);
+    }
+
+    @Test
+    public void getRevisionOnlyReadsRevision() {
+        when(gameRepository.findRevisionById(1L)).thenReturn(Optional.of(5L));
+
+        assertThat(gameService.getRevision(1L)).contains(5L);
+
+        verify(gameRepository, never()).findById(any());
+        verify(gameRepository, never()).findWithPlayersById(any());
+    }
+
     @Test
     public void updateGameReturnsUpdatedGame() {
         when(gameRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
@@ -77,44 +214,90 @@ public class GameServiceTest {
     }
 
     @Test
-    public void deleteGameDeletesGame() {
+    public void deleteGameDeletesGameWithoutLoadingIt() {
+        when(gameRepository.deleteGameById(1L)).thenReturn(1);
+
+        gameService.deleteGame(1L);
+
+        InOrder inOrder = inOrder(shoeChunkRepository, playerRepository, shoeRepository, gameRepository);
+        inOrder.verify(shoeChunkRepository).deleteByGameId(1L);
+        inOrder.verify(playerRepository).deleteByGameId(1L);
+        inOrder.verify(shoeRepository).deleteByGameId(1L);
+        inOrder.verify(gameRepository).deleteGameById(1L);
+        verify(gameRepository, never()).findById(any());
+        verify(gameRepository, never()).incrementRevision(any(), anyLong());
+        verify(gameCache).invalidate(1L);
+    }
+
+    @Test
+    public void deleteGamePublishesEventOnceDeleted() {
+        when(gameRepository.deleteGameById(1L)).thenReturn(1);
+
         gameService.deleteGame(1L);
 
-        verify(gameRepository).deleteById(1L);
+        InOrder inOrder = inOrder(gameRepository, eventBroadcaster);
+        inOrder.verify(gameRepository).deleteGameById(1L);
+        inOrder.verify(eventBroadcaster).publish(any(), eq(GameEvent.gameDeleted()));
+        verify(historyService).record(1L, GameEvent.gameDeleted());
     }
 
     @Test
     public void deleteGameOnANonExistentGameThrowsException() {
-        doThrow(new EmptyResultDataAccessException(1)).when(gameRepository).deleteById(any());
+        when(gameRepository.deleteGameById(1L)).thenReturn(0);
 
         assertThatThrownBy(() -> gameService.deleteGame(1L)).isInstanceOf(GameNotFoundException.class);
+        verifyNoInteractions(eventBroadcaster, historyService);
     }
 
     @Test
-    public void getPlayersAndValuesReturnsAllPlayersAndValuesProperlySorted() {
+    public void getPlayersAndValuesReturnsPlayersAndValuesInRepositoryOrder() {
         Game game = new Game();
-        game.setPlayers(new ArrayList<>());
-        Player player1 = createPlayerIn(game, "Player 1", "S10,C3,H1");
-        Player player2 = createPlayerIn(game, "Player 2", "D2,H12,H7,H9");
-        Player player3 = createPlayerIn(game, "Player 3", "S1,D6,C13,H1");
-        when(gameRepository.findById(1L)).thenReturn(Optional.of(game));
+        Player player1 = createPlayerIn(game, "Player 1", 30);
+        Player player2 = createPlayerIn(game, "Player 2", 21);
+        Pageable pageable = PageRequest.of(0, 2);
+        when(gameRepository.existsById(1L)).thenReturn(true);
+        when(playerRepository.findByGameIdOrderByHandValueDescNameAsc(1L, pageable))
+                .thenReturn(new PageImpl<>(Arrays.asList(player1, player2)));
 
-        List<PlayerAndValue> players = gameService.getPlayersAndValues(1L);
+        List<PlayerAndValue> players = gameService.getPlayersAndValues(1L, pageable);
 
         assertThat(players).isNotNull();
         assertThat(players).isEqualTo(Arrays.asList(
-                new PlayerAndValue(player2, 30),
-                new PlayerAndValue(player3, 21),
-                new PlayerAndValue(player1, 14)
+                new PlayerAndValue(player1, 30),
+                new PlayerAndValue(player2, 21)
         ));
+        verify(playerRepository).findByGameIdOrderByHandValueDescNameAsc(1L, pageable);
+    }
+
+    @Test
+    public void getPlayersAndValuesWithInMemoryEngineReturnsPageOfLivePlayers() {
+        Game game = new Game();
+        Player player1 = createPlayerIn(game, "Player 1", 30);
+        Player player2 = createPlayerIn(game, "Player 2", 21);
+        Player player3 = createPlayerIn(game, "Player 3", 12);
+        when(gameEngine.isEnabled()).thenReturn(true);
+        when(gameEngine.getPlayersByValue(1L)).thenReturn(Arrays.asList(player1, player2, player3));
+
+        List<PlayerAndValue> players = gameService.getPlayersAndValues(1L, PageRequest.of(1, 2));
+
+        assertThat(players).isEqualTo(List.of(new PlayerAndValue(player3, 12)));
+        verifyNoInteractions(gameRepository, playerRepository);
+    }
+
+    @Test
+    public void getPlayersAndValuesOnANonExistentGameThrowsException() {
+        when(gameRepository.existsById(1L)).thenReturn(false);
+
+        assertThatThrownBy(() -> gameService.getPlayersAndValues(1L, Pageable.unpaged()))
+                .isInstanceOf(GameNotFoundException.class);
+        verifyNoInteractions(playerRepository);
     }
 
-    private static Player createPlayerIn(Game game, String name, String hand) {
+    private static Player createPlayerIn(Game game, String name, int handValue) {
         Player player = new Player();
         player.setGame(game);
         player.setName(name);
-        player.setHand(hand);
-        game.getPlayers().add(player);
+        player.setHandValue(handValue);
         return player;
     }
 }
@@ -1,32 +1,49 @@
 package io.github.clechasseur.deckr.service;
 
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfCardsException;
 import io.github.clechasseur.deckr.exception.PlayerNotFoundException;
 import io.github.clechasseur.deckr.model.Card;
 import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.ConcurrencyStrategy;
 import io.github.clechasseur.deckr.model.Game;
 import io.github.clechasseur.deckr.model.Player;
+import io.github.clechasseur.deckr.model.PlayerSummary;
 import io.github.clechasseur.deckr.model.Shoe;
 import io.github.clechasseur.deckr.model.Suit;
 import io.github.clechasseur.deckr.repository.PlayerRepository;
+import io.github.clechasseur.deckr.util.CardUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -44,10 +61,29 @@ public class PlayerServiceTest {
     @Mock
     private ShoeService shoeService;
 
+    @Mock
+    private GameEngine gameEngine;
+
+    @Mock
+    private GameEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private GameHistoryService historyService;
+
+    @Spy
+    private ConcurrencyService concurrencyService = new ConcurrencyService(mock(PlatformTransactionManager.class),
+            ConcurrencyStrategy.Isolation, 1);
+
+    @Spy
+    private GameCommandDispatcher commandDispatcher = new GameCommandDispatcher(false);
+
+    @Captor
+    private ArgumentCaptor<Supplier<Long>> gameIdArgumentCaptor;
+
     @Test
     public void createPlayerReturnsNewPlayer() {
         Game game = mock(Game.class);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(gameService.getGameForUpdate(1L)).thenReturn(game);
         when(playerRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         Player player = playerService.createPlayer(1L, "Player 1");
@@ -55,8 +91,26 @@ public class PlayerServiceTest {
         assertThat(player).isNotNull();
         assertThat(player.getGame()).isEqualTo(game);
         assertThat(player.getName()).isEqualTo("Player 1");
-        verify(gameService).getGame(1L);
+        verify(gameService).getGameForUpdate(1L);
+        verify(gameService, never()).getGame(any());
         verify(playerRepository).save(any(Player.class));
+        verify(gameService).reviseGame(1L, 1L);
+    }
+
+    @Test
+    public void getPlayerSummaryReturnsSummary() {
+        PlayerSummary summary = new PlayerSummary(1L, 2L, "Test player", 2, 17);
+        when(playerRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+
+        assertThat(playerService.getPlayerSummary(1L)).isEqualTo(summary);
+        verify(playerRepository, never()).findById(any());
+    }
+
+    @Test
+    public void getPlayerSummaryWithNoPlayerThrowsException() {
+        when(playerRepository.findSummaryById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> playerService.getPlayerSummary(1L)).isInstanceOf(PlayerNotFoundException.class);
     }
 
     @Test
@@ -83,19 +137,33 @@ public class PlayerServiceTest {
     public void deletePlayerDeletesPlayer() {
         Player player = new Player();
         player.setId(1L);
+        player.setVersion(4L);
         Game game = new Game();
+        game.setId(2L);
         player.setGame(game);
-        game.setPlayers(new ArrayList<>(Collections.singletonList(player)));
         when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
 
         playerService.deletePlayer(1L);
 
         verify(playerRepository).findById(1L);
-        ArgumentCaptor<Game> gameArgumentCaptor = ArgumentCaptor.forClass(Game.class);
-        verify(gameService).updateGame(gameArgumentCaptor.capture());
-        Game actualGame = gameArgumentCaptor.getValue();
-        assertThat(game).isNotNull();
-        assertThat(game.getPlayers()).isNullOrEmpty();
+        verify(playerRepository).delete(player);
+        verify(gameService).reviseGame(2L, 5L);
+        verifyNoMoreInteractions(gameService);
+    }
+
+    @Test
+    public void deletePlayerPublishesEventToItsGame() {
+        Player player = new Player();
+        player.setId(1L);
+        Game game = new Game();
+        game.setId(2L);
+        player.setGame(game);
+        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+
+        playerService.deletePlayer(1L);
+
+        verify(eventBroadcaster).publish(gameIdArgumentCaptor.capture(), eq(GameEvent.playerLeft(1L)));
+        assertThat(gameIdArgumentCaptor.getValue().get()).isEqualTo(2L);
     }
 
     @Test
@@ -106,7 +174,7 @@ public class PlayerServiceTest {
     @Test
     public void getCardsReturnsProperCardsForPlayer() {
         Player player = new Player();
-        player.setHand("H9,D1,S13,C5");
+        player.setHand(CardUtils.encode("H9,D1,S13,C5"));
         when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
 
         List<CardAndSuit> cards = playerService.getCards(1L);
@@ -121,91 +189,125 @@ public class PlayerServiceTest {
         verify(playerRepository).findById(1L);
     }
 
+    @Test
+    public void streamCardsReturnsCardsInHandOrder() {
+        Player player = new Player();
+        player.setHand(CardUtils.encode("H9,D1,S13,C5"));
+        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+
+        Stream<CardAndSuit> cards = playerService.streamCards(1L);
+
+        assertThat(cards).containsExactly(
+                new CardAndSuit(Card.Nine, Suit.Hearts),
+                new CardAndSuit(Card.Ace, Suit.Diamonds),
+                new CardAndSuit(Card.King, Suit.Spades),
+                new CardAndSuit(Card.Five, Suit.Clubs)
+        );
+    }
+
+    @Test
+    public void getCardsReturnsSharedCardInstances() {
+        Player player = new Player();
+        player.setHand(CardUtils.encode("H9,H9"));
+        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+
+        List<CardAndSuit> cards = playerService.getCards(1L);
+
+        assertThat(cards).hasSize(2);
+        assertThat(cards.get(0)).isSameAs(CardAndSuit.of(Card.Nine, Suit.Hearts));
+        assertThat(cards.get(1)).isSameAs(cards.get(0));
+    }
+
     @Test
     public void dealingCardsInAGameWithNoShoeThrowsException() {
         Player player = new Player();
         Game game = new Game();
         player.setGame(game);
-        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+        when(playerRepository.findWithGameAndShoeById(1L)).thenReturn(Optional.of(player));
 
         assertThatThrownBy(() -> playerService.dealCards(1L, 1))
                 .isInstanceOf(GameWithoutShoeException.class);
-        verify(playerRepository).findById(1L);
+        verify(playerRepository).findWithGameAndShoeById(1L);
     }
 
     @Test
     public void dealingCardsFromABigEnoughShoeDealsCardsAsExpected() {
         Player player = new Player();
         Game game = new Game();
+        game.setId(2L);
         player.setGame(game);
         Shoe shoe = new Shoe();
-        shoe.setCards("H4,D10,S3,C13,D1,H7");
+        shoe.setCardsLeft(CardUtils.encode("H4,D10,S3,C13,D1,H7"));
         game.setShoe(shoe);
-        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+        when(playerRepository.findWithGameAndShoeById(1L)).thenReturn(Optional.of(player));
+        when(shoeService.drawCards(shoe, 4)).thenReturn(CardUtils.encode("H4,D10,S3,C13"));
 
         playerService.dealCards(1L, 4);
 
-        verify(playerRepository).findById(1L);
-        ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
+        verify(playerRepository).findWithGameAndShoeById(1L);
+        verify(shoeService).drawCards(shoe, 4);
+        verify(shoeService).updateShoe(shoe);
         ArgumentCaptor<Player> playerArgumentCaptor = ArgumentCaptor.forClass(Player.class);
-        verify(shoeService).updateShoe(shoeArgumentCaptor.capture());
         verify(playerRepository).save(playerArgumentCaptor.capture());
-        Shoe actualShoe = shoeArgumentCaptor.getValue();
         Player actualPlayer = playerArgumentCaptor.getValue();
-        assertThat(actualShoe).isNotNull();
-        assertThat(actualShoe.getCards()).isEqualTo("D1,H7");
         assertThat(actualPlayer).isNotNull();
-        assertThat(actualPlayer.getHand()).isEqualTo("H4,D10,S3,C13");
+        assertThat(actualPlayer.getHand()).isEqualTo(CardUtils.encode("H4,D10,S3,C13"));
+        assertThat(actualPlayer.getHandValue()).isEqualTo(30);
+        assertThat(actualPlayer.getCardCount()).isEqualTo(4);
+        verify(historyService).record(2L, GameEvent.cardsDealt(1L, 4), CardUtils.encode("H4,D10,S3,C13"));
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.cardsDealt(1L, 4)));
     }
 
     @Test
-    public void dealingAllCardsLeftInShoeDealsCardsAsExpected() {
+    public void dealingMoreCardsThanLeftPublishesNumberOfCardsDealt() {
         Player player = new Player();
         Game game = new Game();
+        game.setId(2L);
         player.setGame(game);
         Shoe shoe = new Shoe();
-        shoe.setCards("H4,D10,S3,C13,D1,H7");
+        shoe.setCardsLeft(CardUtils.encode("H4,D10"));
         game.setShoe(shoe);
-        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+        when(playerRepository.findWithGameAndShoeById(1L)).thenReturn(Optional.of(player));
+        when(shoeService.drawCards(shoe, 5)).thenReturn(CardUtils.encode("H4,D10"));
 
-        playerService.dealCards(1L, 6);
+        playerService.dealCards(1L, 5);
 
-        verify(playerRepository).findById(1L);
-        ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
-        ArgumentCaptor<Player> playerArgumentCaptor = ArgumentCaptor.forClass(Player.class);
-        verify(shoeService).updateShoe(shoeArgumentCaptor.capture());
-        verify(playerRepository).save(playerArgumentCaptor.capture());
-        Shoe actualShoe = shoeArgumentCaptor.getValue();
-        Player actualPlayer = playerArgumentCaptor.getValue();
-        assertThat(actualShoe).isNotNull();
-        assertThat(actualShoe.getCards()).isEmpty();
-        assertThat(actualPlayer).isNotNull();
-        assertThat(actualPlayer.getHand()).isEqualTo("H4,D10,S3,C13,D1,H7");
+        verify(historyService).record(2L, GameEvent.cardsDealt(1L, 2), CardUtils.encode("H4,D10"));
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.cardsDealt(1L, 2)));
+    }
+
+    @Test
+    public void dealingCardsWithGameEngineEnabledPublishesNumberOfCardsDealt() {
+        when(gameEngine.isEnabled()).thenReturn(true);
+        when(gameEngine.dealCards(1L, 5)).thenReturn(3);
+
+        playerService.dealCards(1L, 5);
+
+        verifyNoInteractions(shoeService, playerRepository);
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.cardsDealt(1L, 3)));
     }
 
     @Test
-    public void dealingMoreCardsThanWhatIsLeftInShoeDealsRemainingCards() {
+    public void dealingCardsAddsToExistingHand() {
         Player player = new Player();
+        player.setHand(CardUtils.encode("S1"));
+        player.setHandValue(1);
+        player.setCardCount(1);
         Game game = new Game();
         player.setGame(game);
         Shoe shoe = new Shoe();
-        shoe.setCards("H4,D10,S3,C13,D1,H7");
+        shoe.setCardsLeft(CardUtils.encode("C13,D1,H7"));
         game.setShoe(shoe);
-        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+        when(playerRepository.findWithGameAndShoeById(1L)).thenReturn(Optional.of(player));
+        when(shoeService.drawCards(shoe, 2)).thenReturn(CardUtils.encode("C13,D1"));
 
-        playerService.dealCards(1L, 8);
+        playerService.dealCards(1L, 2);
 
-        verify(playerRepository).findById(1L);
-        ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
         ArgumentCaptor<Player> playerArgumentCaptor = ArgumentCaptor.forClass(Player.class);
-        verify(shoeService).updateShoe(shoeArgumentCaptor.capture());
         verify(playerRepository).save(playerArgumentCaptor.capture());
-        Shoe actualShoe = shoeArgumentCaptor.getValue();
-        Player actualPlayer = playerArgumentCaptor.getValue();
-        assertThat(actualShoe).isNotNull();
-        assertThat(actualShoe.getCards()).isEmpty();
-        assertThat(actualPlayer).isNotNull();
-        assertThat(actualPlayer.getHand()).isEqualTo("H4,D10,S3,C13,D1,H7");
+        assertThat(playerArgumentCaptor.getValue().getHand()).isEqualTo(CardUtils.encode("S1,C13,D1"));
+        assertThat(playerArgumentCaptor.getValue().getHandValue()).isEqualTo(15);
+        assertThat(playerArgumentCaptor.getValue().getCardCount()).isEqualTo(3);
     }
 
     @Test
@@ -215,11 +317,146 @@ public class PlayerServiceTest {
         player.setGame(game);
         Shoe shoe = new Shoe();
         game.setShoe(shoe);
-        when(playerRepository.findById(1L)).thenReturn(Optional.of(player));
+        when(playerRepository.findWithGameAndShoeById(1L)).thenReturn(Optional.of(player));
 
         playerService.dealCards(1L, 4);
 
-        verify(playerRepository).findById(1L);
+        verify(shoeService).lockShoeOfPlayer(1L);
+        verify(playerRepository).findWithGameAndShoeById(1L);
         verifyNoMoreInteractions(playerRepository, shoeService);
+        verifyNoInteractions(eventBroadcaster);
+    }
+
+    @Test
+    public void dealingARoundDealsCardsAroundTheTable() {
+        Game game = new Game();
+        game.setId(1L);
+        Player player1 = createPlayer(1L, game);
+        Player player2 = createPlayer(2L, game);
+        Player player3 = createPlayer(3L, game);
+        game.setPlayers(new ArrayList<>(Arrays.asList(player3, player1, player2)));
+        Shoe shoe = new Shoe();
+        shoe.setCardsLeft(CardUtils.encode("H1,H2,H3,H4,H5,H6,H7,H8"));
+        game.setShoe(shoe);
+        when(gameService.getGameWithPlayersForUpdate(1L)).thenReturn(game);
+        when(shoeService.drawCards(shoe, 6)).thenReturn(CardUtils.encode("H1,H2,H3,H4,H5,H6"));
+
+        playerService.dealRound(1L, 2);
+
+        assertThat(player1.getHand()).isEqualTo(CardUtils.encode("H1,H4"));
+        assertThat(player2.getHand()).isEqualTo(CardUtils.encode("H2,H5"));
+        assertThat(player3.getHand()).isEqualTo(CardUtils.encode("H3,H6"));
+        assertThat(player3.getHandValue()).isEqualTo(9);
+        assertThat(player3.getCardCount()).isEqualTo(2);
+        verify(shoeService).updateShoe(shoe);
+        verify(playerRepository).saveAll(Arrays.asList(player1, player2, player3));
+        verifyNoMoreInteractions(playerRepository);
+        verify(historyService).record(1L, GameEvent.cardsDealt(1L, 2), CardUtils.encode("H1,H4"));
+        verify(historyService).record(1L, GameEvent.cardsDealt(2L, 2), CardUtils.encode("H2,H5"));
+        verify(historyService).record(1L, GameEvent.cardsDealt(3L, 2), CardUtils.encode("H3,H6"));
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.roundDealt(2)));
+    }
+
+    @Test
+    public void dealingARoundWithTooFewCardsLeftStopsWhenShoeIsEmpty() {
+        Game game = new Game();
+        game.setId(1L);
+        Player player1 = createPlayer(1L, game);
+        Player player2 = createPlayer(2L, game);
+        game.setPlayers(new ArrayList<>(Arrays.asList(player1, player2)));
+        Shoe shoe = new Shoe();
+        shoe.setCardsLeft(CardUtils.encode("S1,S2,S3"));
+        game.setShoe(shoe);
+        when(gameService.getGameWithPlayersForUpdate(1L)).thenReturn(game);
+        when(shoeService.drawCards(shoe, 4)).thenReturn(CardUtils.encode("S1,S2,S3"));
+
+        playerService.dealRound(1L, 2);
+
+        assertThat(player1.getHand()).isEqualTo(CardUtils.encode("S1,S3"));
+        assertThat(player2.getHand()).isEqualTo(CardUtils.encode("S2"));
+    }
+
+    @Test
+    public void dealingARoundInAGameWithNoShoeThrowsException() {
+        Game game = new Game();
+        game.setId(1L);
+        when(gameService.getGameWithPlayersForUpdate(1L)).thenReturn(game);
+
+        assertThatThrownBy(() -> playerService.dealRound(1L, 1))
+                .isInstanceOf(GameWithoutShoeException.class);
+        verify(shoeService).lockShoeOfGame(1L);
+        verifyNoMoreInteractions(shoeService);
+        verifyNoInteractions(playerRepository);
+    }
+
+    @Test
+    public void dealingARoundInAGameWithNoPlayersDoesNothing() {
+        Game game = new Game();
+        game.setId(1L);
+        Shoe shoe = new Shoe();
+        shoe.setCardsLeft(CardUtils.encode("S1,S2,S3"));
+        game.setShoe(shoe);
+        when(gameService.getGameWithPlayersForUpdate(1L)).thenReturn(game);
+
+        playerService.dealRound(1L, 1);
+
+        verify(shoeService).lockShoeOfGame(1L);
+        verifyNoMoreInteractions(shoeService);
+        verifyNoInteractions(playerRepository, eventBroadcaster);
+    }
+
+    @Test
+    public void dealingARoundFromAnEmptyShoeDoesNotPublishEvent() {
+        Game game = new Game();
+        game.setId(1L);
+        game.setPlayers(new ArrayList<>(List.of(createPlayer(1L, game))));
+        game.setShoe(new Shoe());
+        when(gameService.getGameWithPlayersForUpdate(1L)).thenReturn(game);
+
+        playerService.dealRound(1L, 1);
+
+        verifyNoInteractions(playerRepository, eventBroadcaster);
+    }
+
+    @Test
+    public void dealingARoundWithNegativeNumberOfCardsThrowsException() {
+        assertThatThrownBy(() -> playerService.dealRound(1L, -1))
+                .isInstanceOf(InvalidNumberOfCardsException.class);
+        verifyNoInteractions(gameService, shoeService, playerRepository, gameEngine, eventBroadcaster);
+    }
+
+    @Test
+    public void dealingCardsLocksShoeBeforeReadingPlayer() {
+        Player player = new Player();
+        Game game = new Game();
+        player.setGame(game);
+        game.setShoe(new Shoe());
+        when(playerRepository.findWithGameAndShoeById(1L)).thenReturn(Optional.of(player));
+
+        playerService.dealCards(1L, 1);
+
+        InOrder inOrder = inOrder(shoeService, playerRepository);
+        inOrder.verify(shoeService).lockShoeOfPlayer(1L);
+        inOrder.verify(playerRepository).findWithGameAndShoeById(1L);
+    }
+
+    @Test
+    public void dealingARoundWithInMemoryEngineGoesThroughEngine() {
+        when(gameEngine.isEnabled()).thenReturn(true);
+        when(gameEngine.dealRound(1L, 2)).thenReturn(4);
+
+        playerService.dealRound(1L, 2);
+
+        verify(gameEngine).dealRound(1L, 2);
+        verifyNoInteractions(gameService, shoeService, playerRepository);
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.roundDealt(2)));
+    }
+
+    private static Player createPlayer(Long id, Game game) {
+        Player player = new Player();
+        player.setId(id);
+        player.setGame(game);
+        player.setName("Player " + id);
+        return player;
     }
 }
@@ -1,30 +1,55 @@
 package io.github.clechasseur.deckr.service;
 
+import io.github.clechasseur.deckr.command.GameCommandDispatcher;
+import io.github.clechasseur.deckr.engine.GameEngine;
+import io.github.clechasseur.deckr.event.GameEvent;
+import io.github.clechasseur.deckr.event.GameEventBroadcaster;
 import io.github.clechasseur.deckr.exception.GameAlreadyHasShoeException;
+import io.github.clechasseur.deckr.exception.GameNotFoundException;
+import io.github.clechasseur.deckr.exception.GameWithoutShoeException;
+import io.github.clechasseur.deckr.exception.InvalidNumberOfDecksException;
 import io.github.clechasseur.deckr.exception.ShoeNotFoundException;
 import io.github.clechasseur.deckr.model.Card;
 import io.github.clechasseur.deckr.model.CardAndSuit;
+import io.github.clechasseur.deckr.model.CardCount;
+import io.github.clechasseur.deckr.model.ConcurrencyStrategy;
 import io.github.clechasseur.deckr.model.Game;
 import io.github.clechasseur.deckr.model.Shoe;
+import io.github.clechasseur.deckr.model.ShoeChunk;
+import io.github.clechasseur.deckr.model.ShoeChunkId;
+import io.github.clechasseur.deckr.model.ShoeSummary;
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
 import io.github.clechasseur.deckr.model.Suit;
+import io.github.clechasseur.deckr.repository.ShoeChunkRepository;
 import io.github.clechasseur.deckr.repository.ShoeRepository;
 import io.github.clechasseur.deckr.util.CardUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -38,21 +63,47 @@ public class ShoeServiceTest {
     @Mock
     private ShoeRepository shoeRepository;
 
+    @Mock
+    private ShoeChunkRepository shoeChunkRepository;
+
     @Mock
     private GameService gameService;
 
+    @Mock
+    private ShuffleService shuffleService;
+
+    @Mock
+    private GameEngine gameEngine;
+
+    @Mock
+    private GameEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private GameHistoryService historyService;
+
+    @Spy
+    private ConcurrencyService concurrencyService = new ConcurrencyService(mock(PlatformTransactionManager.class),
+            ConcurrencyStrategy.Isolation, 1);
+
+    @Spy
+    private GameCommandDispatcher commandDispatcher = new GameCommandDispatcher(false);
+
+    @Captor
+    private ArgumentCaptor<Iterable<ShoeChunk>> chunksArgumentCaptor;
+
     @Test
     public void createShoeReturnsNewShoe() {
         Game game = mock(Game.class);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(gameService.getGameForUpdate(1L)).thenReturn(game);
         when(shoeRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         Shoe shoe = shoeService.createShoe(1L);
 
         assertThat(shoe).isNotNull();
         assertThat(shoe.getGame()).isEqualTo(game);
-        verify(gameService).getGame(1L);
+        verify(gameService).getGameForUpdate(1L);
         verify(shoeRepository).save(any(Shoe.class));
+        verify(gameService).reviseGame(1L, 1L);
     }
 
     @Test
@@ -60,13 +111,55 @@ public class ShoeServiceTest {
         Game game = mock(Game.class);
         Shoe shoe = mock(Shoe.class);
         when(game.getShoe()).thenReturn(shoe);
-        when(gameService.getGame(1L)).thenReturn(game);
+        when(gameService.getGameForUpdate(1L)).thenReturn(game);
 
         assertThatThrownBy(() -> shoeService.createShoe(1L)).isInstanceOf(GameAlreadyHasShoeException.class);
-        verify(gameService).getGame(1L);
+        verify(gameService).getGameForUpdate(1L);
         verifyNoInteractions(shoeRepository);
     }
 
+    @Test
+    public void getShoeIdOfGameReadsOnlyId() {
+        when(shoeRepository.findIdByGameId(1L)).thenReturn(Optional.of(2L));
+
+        assertThat(shoeService.getShoeIdOfGame(1L)).isEqualTo(2L);
+        verify(shoeRepository, never()).findById(any());
+        verifyNoInteractions(gameService);
+    }
+
+    @Test
+    public void getShoeIdOfGameWithoutShoeThrowsException() {
+        when(shoeRepository.findIdByGameId(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> shoeService.getShoeIdOfGame(1L)).isInstanceOf(GameWithoutShoeException.class);
+        verify(gameService).getGameSummary(1L);
+    }
+
+    @Test
+    public void getShoeSummaryOfGameReturnsSummary() {
+        ShoeSummary summary = new ShoeSummary(2L, 1L, 52, ShuffleStrategy.Secure);
+        when(shoeRepository.findSummaryByGameId(1L)).thenReturn(Optional.of(summary));
+
+        assertThat(shoeService.getShoeSummaryOfGame(1L)).isEqualTo(summary);
+        verifyNoInteractions(gameService);
+    }
+
+    @Test
+    public void getShoeSummaryOfGameWithoutShoeThrowsException() {
+        when(shoeRepository.findSummaryByGameId(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> shoeService.getShoeSummaryOfGame(1L)).isInstanceOf(GameWithoutShoeException.class);
+        verify(gameService).getGameSummary(1L);
+    }
+
+    @Test
+    public void getShoeSummaryOfNonExistentGameThrowsException() {
+        when(shoeRepository.findSummaryByGameId(1L)).thenReturn(Optional.empty());
+        when(gameService.getGameSummary(1L)).thenThrow(new GameNotFoundException(1L));
+
+        assertThatThrownBy(() -> shoeService.getShoeSummaryOfGame(1L)).isInstanceOf(GameNotFoundException.class);
+    }
+
     @Test
     public void getShoeWithNoShoeThrowsException() {
         when(shoeRepository.findById(any())).thenReturn(Optional.empty());
@@ -92,59 +185,416 @@ public class ShoeServiceTest {
         when(shoeRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         Shoe shoe = mock(Shoe.class);
+        Game game = createGame();
+        when(shoe.getGame()).thenReturn(game);
         Shoe updatedShoe = shoeService.updateShoe(shoe);
 
         assertThat(updatedShoe).isNotNull();
         assertThat(updatedShoe).isEqualTo(shoe);
         verify(shoeRepository).save(any(Shoe.class));
+        verify(gameService).invalidateGame(1L);
     }
 
     @Test
     public void addDeckToShoeAdds52CardsToShoe() {
-        Shoe shoe = new Shoe();
+        Shoe shoe = createShoe("", 0);
         when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
 
-        shoeService.addDeckToShoe(1L);
+        shoeService.addDecksToShoe(1L, 1);
 
         verify(shoeRepository).findById(1L);
+        ArgumentCaptor<ShoeChunk> chunkArgumentCaptor = ArgumentCaptor.forClass(ShoeChunk.class);
+        verify(shoeChunkRepository).save(chunkArgumentCaptor.capture());
+        assertThat(chunkArgumentCaptor.getValue().getChunkIndex()).isZero();
+        assertThat(chunkArgumentCaptor.getValue().getCards()).hasSize(52);
         ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
         verify(shoeRepository).save(shoeArgumentCaptor.capture());
         Shoe actualShoe = shoeArgumentCaptor.getValue();
-        assertThat(CardUtils.cardsAsList(actualShoe.getCards()).size()).isEqualTo(52);
+        assertThat(actualShoe.getNumCards()).isEqualTo(52);
+        assertThat(actualShoe.getCardCounts()).containsOnly(1);
+        verify(historyService).record(1L, GameEvent.decksAdded(1));
     }
 
     @Test
-    public void shuffleRandomizesTheCardsInShoe() {
+    public void addDeckToPartiallyDealtShoeAppendsToLastChunk() {
+        Shoe shoe = createShoe("H1,H2,H3", 2);
+        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findById(new ShoeChunkId(1L, 0))).thenReturn(Optional.of(shoe.getChunks().get(0)));
+
+        shoeService.addDecksToShoe(1L, 1);
+
+        ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
+        verify(shoeRepository).save(shoeArgumentCaptor.capture());
+        Shoe actualShoe = shoeArgumentCaptor.getValue();
+        assertThat(actualShoe.getNextCard()).isEqualTo(2);
+        assertThat(actualShoe.getNumCards()).isEqualTo(55);
+        assertThat(actualShoe.getNumCardsLeft()).isEqualTo(53);
+        assertThat(actualShoe.getCardsLeft()[0]).isEqualTo(CardUtils.encode("H3")[0]);
+        verify(shoeChunkRepository).save(shoe.getChunks().get(0));
+        verifyNoMoreInteractions(shoeChunkRepository);
+    }
+
+    @Test
+    public void addDeckToShoeSpillsOverToNewChunk() {
         Shoe shoe = new Shoe();
-        shoe.setCards("H1,H2,H3,H4,H5,H6");
+        shoe.setGame(createGame());
+        shoe.setId(1L);
+        shoe.setCardsLeft(new byte[ShoeChunk.SIZE - 12]);
+        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findById(new ShoeChunkId(1L, 0))).thenReturn(Optional.of(shoe.getChunks().get(0)));
+
+        shoeService.addDecksToShoe(1L, 1);
+
+        ArgumentCaptor<ShoeChunk> chunkArgumentCaptor = ArgumentCaptor.forClass(ShoeChunk.class);
+        verify(shoeChunkRepository, times(2)).save(chunkArgumentCaptor.capture());
+        List<ShoeChunk> savedChunks = chunkArgumentCaptor.getAllValues();
+        assertThat(savedChunks.get(0).getChunkIndex()).isZero();
+        assertThat(savedChunks.get(0).getCards()).hasSize(ShoeChunk.SIZE);
+        assertThat(savedChunks.get(1).getChunkIndex()).isEqualTo(1);
+        assertThat(savedChunks.get(1).getCards()).hasSize(40);
+        assertThat(shoe.getNumCards()).isEqualTo(ShoeChunk.SIZE + 40);
+    }
+
+    @Test
+    public void addDecksToShoeAddsAllDecksAtOnce() {
+        Shoe shoe = createShoe("", 0);
         when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
 
-        shoeService.shuffle(1L);
+        shoeService.addDecksToShoe(1L, 8);
+
+        ArgumentCaptor<ShoeChunk> chunkArgumentCaptor = ArgumentCaptor.forClass(ShoeChunk.class);
+        verify(shoeChunkRepository).save(chunkArgumentCaptor.capture());
+        byte[] cards = chunkArgumentCaptor.getValue().getCards();
+        assertThat(cards).hasSize(8 * 52);
+        for (int i = 1; i < 8; i++) {
+            assertThat(Arrays.copyOfRange(cards, i * 52, (i + 1) * 52)).isEqualTo(Arrays.copyOf(cards, 52));
+        }
+        verify(shoeRepository).save(shoe);
+        assertThat(shoe.getNumCards()).isEqualTo(8 * 52);
+        assertThat(shoe.getCardCounts()).containsOnly(8);
+    }
+
+    @Test
+    public void addDecksToShoeWithPessimisticStrategyLocksShoe() {
+        Shoe shoe = createShoe("", 0);
+        doReturn(ConcurrencyStrategy.Pessimistic).when(concurrencyService).getStrategy();
+        when(shoeRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(shoe));
 
-        verify(shoeRepository).findById(1L);
+        shoeService.addDecksToShoe(1L, 1);
+
+        verify(shoeRepository).findByIdForUpdate(1L);
+        verify(shoeRepository, never()).findById(any());
+        verify(shoeRepository).save(shoe);
+        assertThat(shoe.getNumCards()).isEqualTo(52);
+    }
+
+    @Test
+    public void lockShoeOfPlayerOnlyLocksWithPessimisticStrategy() {
+        shoeService.lockShoeOfPlayer(1L);
+        verifyNoInteractions(shoeRepository);
+
+        doReturn(ConcurrencyStrategy.Pessimistic).when(concurrencyService).getStrategy();
+        shoeService.lockShoeOfPlayer(1L);
+        verify(shoeRepository).findByPlayerIdForUpdate(1L);
+    }
+
+    @Test
+    public void addDecksToShoeWithInMemoryEngineGoesThroughEngine() {
+        when(gameEngine.isEnabled()).thenReturn(true);
+
+        shoeService.addDecksToShoe(1L, 2);
+
+        ArgumentCaptor<byte[]> cardsArgumentCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(gameEngine).addDecks(eq(1L), cardsArgumentCaptor.capture(), eq(2));
+        assertThat(cardsArgumentCaptor.getValue()).hasSize(2 * 52);
+        verifyNoInteractions(shoeRepository, shoeChunkRepository);
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.decksAdded(2)));
+    }
+
+    @Test
+    public void shuffleWithGameEngineEnabledPublishesStrategyUsed() {
+        when(gameEngine.isEnabled()).thenReturn(true);
+        when(gameEngine.shuffle(1L, null)).thenReturn(ShuffleStrategy.Splittable);
+
+        shoeService.shuffle(1L, null);
+
+        verifyNoInteractions(shoeRepository, shoeChunkRepository);
+        verify(eventBroadcaster).publish(any(), eq(GameEvent.shuffled(ShuffleStrategy.Splittable)));
+    }
+
+    @Test
+    public void addDecksToShoeWithInvalidNumberOfDecksThrowsException() {
+        assertThatThrownBy(() -> shoeService.addDecksToShoe(1L, 0))
+                .isInstanceOf(InvalidNumberOfDecksException.class);
+        verifyNoInteractions(shoeRepository, shoeChunkRepository);
+    }
+
+    @Test
+    public void shuffleRandomizesTheCardsInShoe() {
+        Shoe shoe = createShoe("H1,H2,H3,H4,H5,H6", 0);
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findByShoeIdOrderByChunkIndex(1L)).thenReturn(shoe.getChunks());
+        doAnswer(invocation -> {
+            byte[] cards = invocation.getArgument(0);
+            byte[] reversed = CardUtils.encode("H6,H5,H4,H3,H2,H1");
+            System.arraycopy(reversed, 0, cards, 0, cards.length);
+            return null;
+        }).when(shuffleService).shuffle(any(), isNull());
+
+        shoeService.shuffle(1L, null);
+
+        verify(shoeRepository).findByIdForShuffle(1L);
         ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
         verify(shoeRepository).save(shoeArgumentCaptor.capture());
         Shoe actualShoe = shoeArgumentCaptor.getValue();
         assertThat(actualShoe).isNotNull();
-        assertThat(actualShoe.getCards()).isNotEqualTo("H1,H2,H3,H4,H5,H6");
-        assertThat(CardUtils.cardsAsList(actualShoe.getCards()).size()).isEqualTo(6);
+        assertThat(actualShoe.getCardsLeft()).isEqualTo(CardUtils.encode("H6,H5,H4,H3,H2,H1"));
+        assertThat(actualShoe.getCardsLeft()).hasSize(6);
+        verify(shoeChunkRepository).saveAll(List.of(shoe.getChunks().get(0)));
+    }
+
+    @Test
+    public void shuffleWithStrategyRemembersStrategyForShoe() {
+        Shoe shoe = createShoe("H1,H2,H3", 0);
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findByShoeIdOrderByChunkIndex(1L)).thenReturn(shoe.getChunks());
+
+        shoeService.shuffle(1L, ShuffleStrategy.Secure);
+        shoeService.shuffle(1L, null);
+
+        verify(shuffleService, times(2)).shuffle(any(), eq(ShuffleStrategy.Secure));
+        assertThat(shoe.getShuffleStrategy()).isEqualTo(ShuffleStrategy.Secure);
+        verify(historyService, times(2)).record(1L, GameEvent.shuffled(ShuffleStrategy.Secure));
+        verify(eventBroadcaster, times(2)).publish(any(), eq(GameEvent.shuffled(ShuffleStrategy.Secure)));
+    }
+
+    @Test
+    public void shufflingAnEmptyShoeWithStrategyRemembersStrategy() {
+        Shoe shoe = new Shoe();
+        shoe.setGame(createGame());
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+
+        shoeService.shuffle(1L, ShuffleStrategy.Parallel);
+
+        verify(shoeRepository).save(shoe);
+        assertThat(shoe.getShuffleStrategy()).isEqualTo(ShuffleStrategy.Parallel);
+        verifyNoInteractions(shuffleService, shoeChunkRepository);
+    }
+
+    @Test
+    public void shuffleOnDrawOnlyMarksCardsLeftAsUnshuffled() {
+        Shoe shoe = createShoe("H1,H2,H3,H4,H5,H6", 2);
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+
+        shoeService.shuffle(1L, ShuffleStrategy.OnDraw);
+
+        verify(shoeRepository).save(shoe);
+        assertThat(shoe.getLazyShuffleEnd()).isEqualTo(6);
+        assertThat(shoe.getNextCard()).isEqualTo(2);
+        verifyNoInteractions(shuffleService, shoeChunkRepository);
+    }
+
+    @Test
+    public void shuffleUsesOnDrawWhenItIsTheDefaultStrategy() {
+        Shoe shoe = createShoe("H1,H2,H3", 0);
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+        when(shuffleService.getDefaultStrategy()).thenReturn(ShuffleStrategy.OnDraw);
+
+        shoeService.shuffle(1L, null);
+
+        assertThat(shoe.getLazyShuffleEnd()).isEqualTo(3);
+        verify(shuffleService, never()).shuffle(any(), any());
+        verifyNoInteractions(shoeChunkRepository);
+    }
+
+    @Test
+    public void shuffleOnlyKeepsCardsLeftInShoe() {
+        Shoe shoe = createShoe("H1,H2,H3,H4,H5,H6", 4);
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findByShoeIdOrderByChunkIndex(1L)).thenReturn(shoe.getChunks());
+
+        shoeService.shuffle(1L, null);
+
+        ArgumentCaptor<Shoe> shoeArgumentCaptor = ArgumentCaptor.forClass(Shoe.class);
+        verify(shoeRepository).save(shoeArgumentCaptor.capture());
+        Shoe actualShoe = shoeArgumentCaptor.getValue();
+        assertThat(actualShoe.getNextCard()).isZero();
+        assertThat(actualShoe.getNumCards()).isEqualTo(2);
+        assertThat(CardUtils.decode(actualShoe.getCardsLeft())).containsExactlyInAnyOrder(
+                new CardAndSuit(Card.Five, Suit.Hearts),
+                new CardAndSuit(Card.Six, Suit.Hearts)
+        );
+    }
+
+    @Test
+    public void shuffleRewritesChunksFromTheStart() {
+        Shoe shoe = new Shoe();
+        shoe.setGame(createGame());
+        shoe.setId(1L);
+        shoe.setCardsLeft(new byte[ShoeChunk.SIZE + 100]);
+        shoe.setNextCard(ShoeChunk.SIZE + 50);
+        ShoeChunk lastChunk = shoe.getChunks().get(1);
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findByShoeIdOrderByChunkIndex(1L)).thenReturn(List.of(lastChunk));
+
+        shoeService.shuffle(1L, null);
+
+        verify(shoeChunkRepository).delete(lastChunk);
+        verify(shoeChunkRepository).saveAll(chunksArgumentCaptor.capture());
+        assertThat(chunksArgumentCaptor.getValue()).singleElement().satisfies(chunk -> {
+            assertThat(chunk.getChunkIndex()).isZero();
+            assertThat(chunk.getCards()).hasSize(50);
+        });
+        assertThat(shoe.getNextCard()).isZero();
+        assertThat(shoe.getNumCards()).isEqualTo(50);
+    }
+
+    @Test
+    public void drawingCardsReadsOnlyTheHeadChunk() {
+        Shoe shoe = createShoe("H4,D10,S3,C13,D1,H7", 0);
+        when(shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(1L, 0, 0))
+                .thenReturn(shoe.getChunks());
+
+        byte[] cards = shoeService.drawCards(shoe, 4);
+
+        assertThat(cards).isEqualTo(CardUtils.encode("H4,D10,S3,C13"));
+        assertThat(shoe.getNextCard()).isEqualTo(4);
+        assertThat(shoe.getCardsLeft()).isEqualTo(CardUtils.encode("D1,H7"));
+        assertThat(shoe.getCardCounts()).isEqualTo(CardUtils.countCards(CardUtils.encode("D1,H7"), 0, 2));
+        verifyNoMoreInteractions(shoeChunkRepository);
+    }
+
+    @Test
+    public void drawingMoreCardsThanWhatIsLeftDrawsRemainingCards() {
+        Shoe shoe = createShoe("H4,D10,S3,C13,D1,H7", 3);
+        when(shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(1L, 0, 0))
+                .thenReturn(shoe.getChunks());
+
+        byte[] cards = shoeService.drawCards(shoe, 8);
+
+        assertThat(cards).isEqualTo(CardUtils.encode("C13,D1,H7"));
+        assertThat(shoe.getNextCard()).isEqualTo(6);
+        assertThat(shoe.getNumCardsLeft()).isZero();
+        assertThat(shoe.getCardCounts()).containsOnly(0);
+    }
+
+    @Test
+    public void drawingCardsDeletesCompletelyDealtChunks() {
+        Shoe shoe = new Shoe();
+        shoe.setId(1L);
+        shoe.setCardsLeft(new byte[ShoeChunk.SIZE + 100]);
+        shoe.setNextCard(ShoeChunk.SIZE - 2);
+        when(shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(1L, 0, 1))
+                .thenReturn(shoe.getChunks());
+
+        byte[] cards = shoeService.drawCards(shoe, 5);
+
+        assertThat(cards).hasSize(5);
+        assertThat(shoe.getNextCard()).isEqualTo(ShoeChunk.SIZE + 3);
+        verify(shoeChunkRepository).delete(shoe.getChunks().get(0));
+        verify(shoeChunkRepository, never()).delete(shoe.getChunks().get(1));
+    }
+
+    @Test
+    public void drawingCardsFromAShoeShuffledOnDrawSwapsWithCardsLeft() {
+        Shoe shoe = new Shoe();
+        shoe.setId(1L);
+        byte[] allCards = new byte[ShoeChunk.SIZE + 100];
+        for (int i = 0; i < allCards.length; i++) {
+            allCards[i] = (byte) (i % CardAndSuit.DISTINCT_CARDS);
+        }
+        shoe.setCardsLeft(allCards);
+        shoe.setLazyShuffleEnd(allCards.length);
+        when(shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(1L, 0, 0))
+                .thenReturn(List.of(shoe.getChunks().get(0)));
+        lenient().when(shoeChunkRepository.findById(new ShoeChunkId(1L, 1)))
+                .thenReturn(Optional.of(shoe.getChunks().get(1)));
+
+        byte[] cards = shoeService.drawCards(shoe, 10);
+
+        assertThat(cards).hasSize(10);
+        assertThat(shoe.getNextCard()).isEqualTo(10);
+        assertThat(shoe.getLazyShuffleEnd()).isEqualTo(allCards.length);
+        int[] expectedCounts = CardUtils.countCards(allCards, 0, allCards.length);
+        for (byte card : cards) {
+            expectedCounts[card]--;
+        }
+        assertThat(shoe.getCardCounts()).isEqualTo(expectedCounts);
+        assertThat(CardUtils.countCards(shoe.getCardsLeft(), 0, shoe.getNumCardsLeft())).isEqualTo(expectedCounts);
+        verify(shoeChunkRepository).saveAll(any());
+    }
+
+    @Test
+    public void drawingCardsFromAShoeShuffledOnDrawPicksCardsAtRandom() {
+        boolean[] seen = new boolean[6];
+        for (int i = 0; i < 500; i++) {
+            Shoe shoe = createShoe("H1,H2,H3,H4,H5,H6", 0);
+            shoe.setLazyShuffleEnd(6);
+            when(shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(1L, 0, 0))
+                    .thenReturn(shoe.getChunks());
+
+            byte[] cards = shoeService.drawCards(shoe, 1);
+
+            seen[cards[0]] = true;
+        }
+        assertThat(seen).containsOnly(true);
+    }
+
+    @Test
+    public void drawingAllCardsFromAShoeShuffledOnDrawEndsLazyShuffle() {
+        Shoe shoe = createShoe("H1,H2,H3,H4,H5,H6,H7", 1);
+        shoe.setLazyShuffleEnd(6);
+        when(shoeChunkRepository.findByShoeIdAndChunkIndexBetweenOrderByChunkIndex(1L, 0, 0))
+                .thenReturn(shoe.getChunks());
+
+        byte[] cards = shoeService.drawCards(shoe, 6);
+
+        assertThat(CardUtils.decode(cards)).containsExactlyInAnyOrderElementsOf(
+                CardUtils.decode(CardUtils.encode("H2,H3,H4,H5,H6,H7")));
+        assertThat(cards[5]).isEqualTo(CardUtils.encode("H7")[0]);
+        assertThat(shoe.getLazyShuffleEnd()).isZero();
+    }
+
+    @Test
+    public void drawingCardsFromAnEmptyShoeReturnsNoCards() {
+        Shoe shoe = createShoe("", 0);
+
+        byte[] cards = shoeService.drawCards(shoe, 2);
+
+        assertThat(cards).isEmpty();
+        verifyNoInteractions(shoeChunkRepository);
+    }
+
+    @Test
+    public void shuffleWithPessimisticStrategyLocksShoe() {
+        Shoe shoe = createShoe("H1,H2,H3", 0);
+        doReturn(ConcurrencyStrategy.Pessimistic).when(concurrencyService).getStrategy();
+        when(shoeRepository.findByIdForShuffleWithLock(1L)).thenReturn(Optional.of(shoe));
+        when(shoeChunkRepository.findByShoeIdOrderByChunkIndex(1L)).thenReturn(shoe.getChunks());
+
+        shoeService.shuffle(1L, null);
+
+        verify(shoeRepository).findByIdForShuffleWithLock(1L);
+        verify(shoeRepository, never()).findByIdForShuffle(any());
+        verify(shoeRepository).save(shoe);
     }
 
     @Test
     public void shufflingAnEmptyShoeDoesNothing() {
         Shoe shoe = new Shoe();
-        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+        when(shoeRepository.findByIdForShuffle(1L)).thenReturn(Optional.of(shoe));
 
-        shoeService.shuffle(1L);
+        shoeService.shuffle(1L, null);
 
-        verify(shoeRepository).findById(1L);
+        verify(shoeRepository).findByIdForShuffle(1L);
         verifyNoMoreInteractions(shoeRepository);
+        verifyNoInteractions(historyService, eventBroadcaster);
     }
 
     @Test
     public void gettingCountOfCardsLeftBySuitReturnsProperCounts() {
         Shoe shoe = new Shoe();
-        shoe.setCards("H1,H2,H3,D4,D5,S6,S7,S8,S9,S10");
+        shoe.setCardsLeft(CardUtils.encode("H1,H2,H3,D4,D5,S6,S7,S8,S9,S10"));
         when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
 
         Map<Suit, Integer> counts = shoeService.getCountOfCardsLeftBySuit(1L);
@@ -154,10 +604,25 @@ public class ShoeServiceTest {
         verify(shoeRepository).findById(1L);
     }
 
+    @Test
+    public void gettingCountOfCardsLeftBySuitUsesStoredCounts() {
+        Shoe shoe = new Shoe();
+        int[] cardCounts = new int[CardAndSuit.DISTINCT_CARDS];
+        cardCounts[CardAndSuit.of(Card.Ace, Suit.Clubs).getIndex()] = 8;
+        cardCounts[CardAndSuit.of(Card.King, Suit.Clubs).getIndex()] = 7;
+        cardCounts[CardAndSuit.of(Card.Two, Suit.Hearts).getIndex()] = 1;
+        shoe.setCardCounts(cardCounts);
+        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+
+        Map<Suit, Integer> counts = shoeService.getCountOfCardsLeftBySuit(1L);
+
+        assertThat(counts).isEqualTo(Map.of(Suit.Clubs, 15, Suit.Hearts, 1));
+    }
+
     @Test
     public void gettingCardsLeftReturnsCardsProperlySorted() {
         Shoe shoe = new Shoe();
-        shoe.setCards("H3,D10,D2,D13,S4,C7,C8,S3,S12,D1,H10,H9");
+        shoe.setCardsLeft(CardUtils.encode("H3,D10,D2,D13,S4,C7,C8,S3,S12,D1,H10,H9"));
         when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
 
         List<CardAndSuit> cards = shoeService.getCardsLeft(1L);
@@ -179,4 +644,65 @@ public class ShoeServiceTest {
         ));
         verify(shoeRepository).findById(1L);
     }
+
+    @Test
+    public void streamingCardsLeftReturnsSameCardsAsGettingThem() {
+        Shoe shoe = new Shoe();
+        shoe.setCardsLeft(CardUtils.encode("H3,D10,D2,D13,S4,C7,C8,S3,S12,D1,H10,H9,D10,H3"));
+        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+
+        List<CardAndSuit> expected = shoeService.getCardsLeft(1L);
+        List<CardAndSuit> streamed = shoeService.streamCardsLeft(1L).collect(Collectors.toList());
+
+        assertThat(streamed).isEqualTo(expected);
+    }
+
+    @Test
+    public void gettingCardsLeftGroupsIdenticalCards() {
+        Shoe shoe = new Shoe();
+        shoe.setCardsLeft(CardUtils.encode("D1,H3,D1,S4,H3,D1"));
+        shoe.setNextCard(1);
+        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+
+        List<CardAndSuit> cards = shoeService.getCardsLeft(1L);
+
+        assertThat(cards).isEqualTo(Arrays.asList(
+                new CardAndSuit(Card.Three, Suit.Hearts),
+                new CardAndSuit(Card.Three, Suit.Hearts),
+                new CardAndSuit(Card.Four, Suit.Spades),
+                new CardAndSuit(Card.Ace, Suit.Diamonds),
+                new CardAndSuit(Card.Ace, Suit.Diamonds)
+        ));
+    }
+
+    @Test
+    public void gettingCardCountsLeftReturnsOneEntryPerDistinctCard() {
+        Shoe shoe = new Shoe();
+        shoe.setCardsLeft(CardUtils.encode("D1,H3,D1,S4,H3,D1"));
+        when(shoeRepository.findById(1L)).thenReturn(Optional.of(shoe));
+
+        List<CardCount> counts = shoeService.getCardCountsLeft(1L);
+
+        assertThat(counts).isEqualTo(Arrays.asList(
+                new CardCount(new CardAndSuit(Card.Three, Suit.Hearts), 2),
+                new CardCount(new CardAndSuit(Card.Four, Suit.Spades), 1),
+                new CardCount(new CardAndSuit(Card.Ace, Suit.Diamonds), 3)
+        ));
+        verify(shoeRepository).findById(1L);
+    }
+
+    private static Shoe createShoe(String cards, int nextCard) {
+        Shoe shoe = new Shoe();
+        shoe.setId(1L);
+        shoe.setGame(createGame());
+        shoe.setCardsLeft(CardUtils.encode(cards));
+        shoe.setNextCard(nextCard);
+        return shoe;
+    }
+
+    private static Game createGame() {
+        Game game = new Game();
+        game.setId(1L);
+        return game;
+    }
 }
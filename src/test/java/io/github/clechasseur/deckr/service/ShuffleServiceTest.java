@@ -0,0 +1,69 @@
+package io.github.clechasseur.deckr.service;
+
+import io.github.clechasseur.deckr.model.ShuffleStrategy;
+import io.github.clechasseur.deckr.shuffle.ShuffleEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ShuffleServiceTest {
+    @Mock
+    private ShuffleEngine inPlaceEngine;
+
+    @Mock
+    private ShuffleEngine secureEngine;
+
+    @Test
+    public void shuffleWithoutStrategyUsesDefaultEngine() {
+        ShuffleService shuffleService = createShuffleService(ShuffleStrategy.InPlace);
+        byte[] cards = new byte[52];
+
+        shuffleService.shuffle(cards, null);
+
+        verify(inPlaceEngine).shuffle(cards);
+        verify(secureEngine, never()).shuffle(any());
+    }
+
+    @Test
+    public void shuffleWithStrategyUsesMatchingEngine() {
+        ShuffleService shuffleService = createShuffleService(ShuffleStrategy.InPlace);
+        byte[] cards = new byte[52];
+
+        shuffleService.shuffle(cards, ShuffleStrategy.Secure);
+
+        verify(secureEngine).shuffle(cards);
+    }
+
+    @Test
+    public void shuffleWithUnknownStrategyThrowsException() {
+        ShuffleService shuffleService = createShuffleService(ShuffleStrategy.InPlace);
+
+        assertThatThrownBy(() -> shuffleService.shuffle(new byte[52], ShuffleStrategy.Parallel))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void defaultStrategyWithoutEngineThrowsException() {
+        when(inPlaceEngine.getStrategy()).thenReturn(ShuffleStrategy.InPlace);
+        when(secureEngine.getStrategy()).thenReturn(ShuffleStrategy.Secure);
+
+        assertThatThrownBy(() -> new ShuffleService(List.of(inPlaceEngine, secureEngine), ShuffleStrategy.Splittable))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private ShuffleService createShuffleService(ShuffleStrategy defaultStrategy) {
+        when(inPlaceEngine.getStrategy()).thenReturn(ShuffleStrategy.InPlace);
+        when(secureEngine.getStrategy()).thenReturn(ShuffleStrategy.Secure);
+        return new ShuffleService(List.of(inPlaceEngine, secureEngine), defaultStrategy);
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.clechasseur.deckr.shuffle;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShuffleEngineTest {
+    public static Stream<ShuffleEngine> engines() {
+        return Stream.of(
+                new InPlaceShuffleEngine(),
+                new SplittableRandomShuffleEngine(),
+                new SecureRandomShuffleEngine(),
+                new ParallelShuffleEngine()
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    public void shuffleKeepsAllCardsOfADeck(ShuffleEngine engine) {
+        assertShuffledPermutation(engine, 52);
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    public void shuffleKeepsAllCardsOfAVeryLargeShoe(ShuffleEngine engine) {
+        assertShuffledPermutation(engine, 1000 * 52);
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    public void shuffleHandlesTinyShoes(ShuffleEngine engine) {
+        byte[] empty = new byte[0];
+        engine.shuffle(empty);
+        assertThat(empty).isEmpty();
+
+        byte[] single = new byte[] { 12 };
+        engine.shuffle(single);
+        assertThat(single).containsExactly(12);
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    public void shufflePutsEveryCardEverywhere(ShuffleEngine engine) {
+        boolean[][] seen = new boolean[8][8];
+        for (int i = 0; i < 1000; i++) {
+            byte[] cards = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7 };
+            engine.shuffle(cards);
+            for (int position = 0; position < cards.length; position++) {
+                seen[cards[position]][position] = true;
+            }
+        }
+        for (boolean[] positions : seen) {
+            assertThat(positions).containsOnly(true);
+        }
+    }
+
+    private static void assertShuffledPermutation(ShuffleEngine engine, int numCards) {
+        byte[] cards = new byte[numCards];
+        for (int i = 0; i < numCards; i++) {
+            cards[i] = (byte) (i % 52);
+        }
+        byte[] original = cards.clone();
+
+        engine.shuffle(cards);
+
+        assertThat(cards).isNotEqualTo(original);
+        byte[] sorted = cards.clone();
+        Arrays.sort(sorted);
+        byte[] sortedOriginal = original.clone();
+        Arrays.sort(sortedOriginal);
+        assertThat(sorted).isEqualTo(sortedOriginal);
+    }
+}